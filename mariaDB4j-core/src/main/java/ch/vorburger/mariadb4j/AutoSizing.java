@@ -0,0 +1,284 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static ch.vorburger.mariadb4j.MemoryBudget.MB;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+
+/**
+ * Sizes the memory and threads of the DB server to fit (together with the other instances of it)
+ * into the memory and CPU limits of the container (cgroup) which this JVM runs in, see {@link
+ * DBConfigurationBuilder#setAutoSizingInstances(int)}.
+ *
+ * <p>Limits are read from cgroup v2, else v1, taking the lowest along the cgroup's path. Without a
+ * limit, the total memory and available processors of the machine are used instead.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class AutoSizing {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoSizing.class);
+
+    /** Memory which the DB server needs regardless of its options, see {@link MemoryBudget}. */
+    static final long SERVER_BASELINE_BYTES = 128 * MB;
+
+    /** Largest memory budget, because DBs for tests do not gain anything from more. */
+    static final long MAX_BUDGET_BYTES = 1024 * MB;
+
+    // cgroup v1 uses (about) Long.MAX_VALUE for "no limit"
+    private static final long V1_UNLIMITED = Long.MAX_VALUE / 2;
+
+    private final Path cgroupRoot;
+    private final Path selfCgroup;
+
+    AutoSizing() {
+        this(Paths.get("/sys/fs/cgroup"), Paths.get("/proc/self/cgroup"));
+    }
+
+    AutoSizing(Path cgroupRoot, Path selfCgroup) {
+        this.cgroupRoot = cgroupRoot;
+        this.selfCgroup = selfCgroup;
+    }
+
+    /**
+     * Options for one of several DB server instances.
+     *
+     * @param instances how many DB servers share the container
+     * @param jvmBytes memory which this JVM itself may use
+     * @param isSizingMemory false to only size the threads, e.g. because there is an explicit
+     *     memory budget, which would override the memory options anyway
+     */
+    List<String> getArgs(int instances, long jvmBytes, boolean isSizingMemory) {
+        OptionalDouble cpuLimit = getCpuLimit();
+        double cpus = cpuLimit.orElse(Runtime.getRuntime().availableProcessors());
+        long threads = Math.max(1, Math.min(4, (long) Math.floor(cpus / instances)));
+        String cpuSource =
+                cpuLimit.isPresent() ? "cgroup limit" : "no cgroup limit, available processors";
+
+        List<String> args = new ArrayList<>();
+        if (!isSizingMemory) {
+            addThreadArgs(args, threads);
+            logger.info(
+                    "Auto-sized for {} DB instances with {} CPUs ({}): InnoDB I/O and purge"
+                            + " threads {} (memory not sized, because of the explicit memory"
+                            + " budget)",
+                    instances,
+                    cpus,
+                    cpuSource,
+                    threads);
+            return args;
+        }
+
+        OptionalLong memoryLimit = getMemoryLimit();
+        long memory = memoryLimit.orElseGet(AutoSizing::getTotalMemory);
+        // A quarter of what's left after the JVM is kept free, e.g. for the mysql client processes
+        long perInstance = (memory - jvmBytes) * 3 / 4 / instances;
+        long budget = Math.min(MAX_BUDGET_BYTES, perInstance - SERVER_BASELINE_BYTES);
+        if (budget < MemoryBudget.MIN_BYTES) {
+            logger.warn(
+                    "{} DB instances may not fit into {} MB of memory, using the smallest memory"
+                            + " budget",
+                    instances,
+                    memory / MB);
+            budget = MemoryBudget.MIN_BYTES;
+        }
+
+        args.addAll(MemoryBudget.getArgs(budget));
+        addThreadArgs(args, threads);
+        logger.info(
+                "Auto-sized for {} DB instances with {} MB of memory ({}) and {} CPUs ({}): memory"
+                        + " budget {} MB, InnoDB I/O and purge threads {}, options {}",
+                instances,
+                memory / MB,
+                memoryLimit.isPresent() ? "cgroup limit" : "no cgroup limit, total of machine",
+                cpus,
+                cpuSource,
+                budget / MB,
+                threads,
+                args);
+        return args;
+    }
+
+    private static void addThreadArgs(List<String> args, long threads) {
+        args.add("--innodb_read_io_threads=" + threads);
+        args.add("--innodb_write_io_threads=" + threads);
+        args.add("--innodb_purge_threads=" + threads);
+    }
+
+    /** Lowest memory limit of this process' cgroup and its parents, if any. */
+    OptionalLong getMemoryLimit() {
+        OptionalLong limit = OptionalLong.empty();
+        List<Path> v2Dirs = getV2Dirs();
+        if (!v2Dirs.isEmpty()) {
+            for (Path dir : v2Dirs) {
+                String max = read(dir.resolve("memory.max"));
+                if (max != null && !max.equals("max")) {
+                    limit = min(limit, Long.parseLong(max));
+                }
+            }
+            return limit;
+        }
+        for (Path dir : getV1Dirs("memory")) {
+            String max = read(dir.resolve("memory.limit_in_bytes"));
+            if (max != null && Long.parseLong(max) < V1_UNLIMITED) {
+                limit = min(limit, Long.parseLong(max));
+            }
+        }
+        return limit;
+    }
+
+    /** Lowest CPU quota (in CPUs) of this process' cgroup and its parents, if any. */
+    OptionalDouble getCpuLimit() {
+        OptionalDouble limit = OptionalDouble.empty();
+        List<Path> v2Dirs = getV2Dirs();
+        if (!v2Dirs.isEmpty()) {
+            for (Path dir : v2Dirs) {
+                // "$MAX $PERIOD", where $MAX may be "max"
+                String max = read(dir.resolve("cpu.max"));
+                if (max != null && !max.startsWith("max")) {
+                    String[] quotaAndPeriod = max.split(" ", 2);
+                    limit =
+                            min(
+                                    limit,
+                                    Double.parseDouble(quotaAndPeriod[0])
+                                            / Double.parseDouble(quotaAndPeriod[1]));
+                }
+            }
+            return limit;
+        }
+        for (Path dir : getV1Dirs("cpu")) {
+            String quota = read(dir.resolve("cpu.cfs_quota_us"));
+            String period = read(dir.resolve("cpu.cfs_period_us"));
+            if (quota != null && period != null && Long.parseLong(quota) > 0) {
+                limit = min(limit, Double.parseDouble(quota) / Double.parseDouble(period));
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * The v2 cgroup directories of this process, from its own up to the root, or none if there is
+     * no v2 hierarchy with controllers.
+     */
+    private List<Path> getV2Dirs() {
+        // Either only v2 (at the root), or hybrid (at "unified")
+        Path root = cgroupRoot;
+        if (!Files.exists(root.resolve("cgroup.controllers"))) {
+            root = cgroupRoot.resolve("unified");
+            if (!Files.exists(root.resolve("cgroup.controllers"))) {
+                return List.of();
+            }
+        }
+        List<Path> dirs = new ArrayList<>();
+        for (String line : readLines(selfCgroup)) {
+            // "0::$PATH"
+            if (line.startsWith("0::")) {
+                for (Path dir = resolve(root, line.substring(3));
+                        dir != null && dir.startsWith(root);
+                        dir = dir.getParent()) {
+                    dirs.add(dir);
+                }
+            }
+        }
+        // The hybrid hierarchy usually has no controllers, then its limits are in v1
+        if (!root.equals(cgroupRoot)
+                && dirs.stream().noneMatch(dir -> Files.exists(dir.resolve("memory.max")))) {
+            return List.of();
+        }
+        return dirs;
+    }
+
+    /** The v1 cgroup directories of this process for a controller, from it up to the root. */
+    private List<Path> getV1Dirs(String controller) {
+        List<Path> dirs = new ArrayList<>();
+        for (String line : readLines(selfCgroup)) {
+            // "$ID:$CONTROLLER[,$CONTROLLER...]:$PATH"
+            String[] parts = line.split(":", 3);
+            if (parts.length == 3 && List.of(parts[1].split(",", -1)).contains(controller)) {
+                Path root = cgroupRoot.resolve(controller);
+                // Inside a container, its own cgroup may be mounted as the root
+                for (Path dir = resolve(root, parts[2]);
+                        dir != null && dir.startsWith(root);
+                        dir = dir.getParent()) {
+                    dirs.add(dir);
+                }
+            }
+        }
+        if (dirs.isEmpty()) {
+            dirs.add(cgroupRoot.resolve(controller));
+        }
+        return dirs;
+    }
+
+    private static Path resolve(Path root, String cgroupPath) {
+        String relative = cgroupPath.startsWith("/") ? cgroupPath.substring(1) : cgroupPath;
+        return relative.isEmpty() ? root : root.resolve(relative);
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.exists(file) ? Files.readString(file, UTF_8).trim() : null;
+        } catch (IOException e) {
+            logger.debug("Could not read {}", file, e);
+            return null;
+        }
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.exists(file) ? Files.readAllLines(file, UTF_8) : List.of();
+        } catch (IOException e) {
+            logger.debug("Could not read {}", file, e);
+            return List.of();
+        }
+    }
+
+    private static OptionalLong min(OptionalLong limit, long value) {
+        return OptionalLong.of(limit.isPresent() ? Math.min(limit.getAsLong(), value) : value);
+    }
+
+    private static OptionalDouble min(OptionalDouble limit, double value) {
+        return OptionalDouble.of(limit.isPresent() ? Math.min(limit.getAsDouble(), value) : value);
+    }
+
+    private static long getTotalMemory() {
+        if (ManagementFactory.getOperatingSystemMXBean()
+                instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getTotalMemorySize();
+        }
+        // Not a HotSpot based JVM; assume a small machine
+        return 4096 * MB;
+    }
+}
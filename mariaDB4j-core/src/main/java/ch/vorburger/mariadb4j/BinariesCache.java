@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Machine-wide cache of DB binaries unpacked from the classpath.
+ *
+ * <p>Each entry is a directory named after the DB version and OS plus a digest of the content of
+ * the <code>mariaDB4j-db-*</code> artifact, so different versions (or re-packaged JARs of the same
+ * version) never share an entry. Entries are populated at most once, under a lock file that also
+ * protects against other JVMs (e.g. parallel Surefire forks) unpacking the same entry at the same
+ * time.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class BinariesCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinariesCache.class);
+
+    static final String COMPLETE_MARKER = ".complete";
+
+    // FileChannel.lock() is held per JVM, not per thread, so we need this as well
+    private static final ConcurrentMap<File, Object> jvmLocks = new ConcurrentHashMap<>();
+
+    private BinariesCache() {}
+
+    /**
+     * Directory within the cache for the binaries at the given classpath location.
+     *
+     * @param cacheDir root directory of the cache
+     * @param binariesClassPathLocation e.g. "ch/vorburger/mariadb4j/mariadb-11.4.5/linux"
+     * @return directory (which may not exist yet) to use as base directory
+     * @throws IOException if the classpath could not be read to compute the digest
+     */
+    static File getEntryDir(File cacheDir, String binariesClassPathLocation) throws IOException {
+        // e.g. "mariadb-11.4.5-linux" from "ch/vorburger/mariadb4j/mariadb-11.4.5/linux"
+        int lastSlash = binariesClassPathLocation.lastIndexOf('/');
+        int previousSlash = binariesClassPathLocation.lastIndexOf('/', lastSlash - 1);
+        String name = binariesClassPathLocation.substring(previousSlash + 1).replace('/', '-');
+        return new File(cacheDir, name + "-" + digest(binariesClassPathLocation).substring(0, 16));
+    }
+
+    /**
+     * Digest of everything found on the classpath under the given package path. For JARs, this is
+     * based on the name, size and CRC-32 of each entry as recorded in the JAR's central directory,
+     * which is cheap to read and does not require decompressing anything; for directories (e.g. in
+     * an IDE), on the name, size and modification time of each file.
+     *
+     * @param packagePath e.g. "ch/vorburger/mariadb4j/mariadb-11.4.5/linux"
+     * @return hex encoded SHA-256
+     * @throws IOException if the classpath could not be read
+     */
+    static String digest(String packagePath) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(packagePath.getBytes(UTF_8));
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        List<URL> roots =
+                classLoader != null
+                        ? Collections.list(classLoader.getResources(packagePath))
+                        : List.of();
+        for (URL root : roots) {
+            URLConnection connection = root.openConnection();
+            if (connection instanceof JarURLConnection jarConnection) {
+                jarConnection.setUseCaches(false);
+                String prefix = jarConnection.getEntryName();
+                if (!prefix.endsWith("/")) {
+                    prefix = prefix + "/";
+                }
+                try (JarFile jarFile = jarConnection.getJarFile()) {
+                    for (JarEntry entry : Collections.list(jarFile.entries())) {
+                        if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                            update(digest, entry.getName(), entry.getSize(), entry.getCrc());
+                        }
+                    }
+                }
+            } else if ("file".equals(root.getProtocol())) {
+                Path rootDir = toPath(root);
+                try (Stream<Path> files = Files.walk(rootDir)) {
+                    for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                        if (Files.isRegularFile(file)) {
+                            update(
+                                    digest,
+                                    rootDir.relativize(file).toString(),
+                                    Files.size(file),
+                                    Files.getLastModifiedTime(file).toMillis());
+                        }
+                    }
+                }
+            } else {
+                digest.update(root.toString().getBytes(UTF_8));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Populates a cache entry, unless this was already done, by this or any other JVM.
+     *
+     * @param entryDir directory of the cache entry, see {@link #getEntryDir(File, String)}
+     * @param unpacker what actually unpacks the binaries (or anything else) into entryDir
+     * @return true if this call populated the entry, false if it was already populated
+     * @throws IOException if unpacking failed (in which case the entry is not marked as complete)
+     */
+    static boolean populate(File entryDir, Util.Procedure<IOException> unpacker)
+            throws IOException {
+        Path marker = entryDir.toPath().resolve(COMPLETE_MARKER);
+        if (Files.exists(marker)) {
+            return false;
+        }
+        File lockFile = new File(entryDir.getAbsolutePath() + ".lock");
+        synchronized (jvmLocks.computeIfAbsent(lockFile, key -> new Object())) {
+            Files.createDirectories(entryDir.toPath());
+            try (FileChannel channel =
+                    FileChannel.open(
+                            lockFile.toPath(),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    // Another JVM may have completed it while we were waiting for the lock
+                    if (Files.exists(marker)) {
+                        return false;
+                    }
+                    logger.info("Populating shared cache entry: {}", entryDir);
+                    unpacker.apply();
+                    Files.createFile(marker);
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, String name, long size, long checksum) {
+        digest.update(name.getBytes(UTF_8));
+        digest.update((":" + size + ":" + checksum + "\n").getBytes(UTF_8));
+    }
+
+    private static Path toPath(URL url) throws IOException {
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid file URL: " + url, e);
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
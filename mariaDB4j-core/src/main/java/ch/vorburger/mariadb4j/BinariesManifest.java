@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Manifest of DB binaries unpacked from the classpath into a base directory.
+ *
+ * <p>It is written (atomically) only after a successful unpack, so it also marks that unpacking
+ * completed, and records a fingerprint of where the binaries came from, plus the path and size of
+ * every unpacked file. As long as it matches, unpacking can be skipped entirely, without having to
+ * scan the classpath and compare each file against it.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class BinariesManifest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinariesManifest.class);
+
+    static final String FILE_NAME = ".mariaDB4j-manifest.properties";
+
+    private static final String ARTIFACT_KEY = "artifact";
+    private static final String FILE_KEY_PREFIX = "file.";
+
+    private BinariesManifest() {}
+
+    /**
+     * Fingerprint of the binaries at the given classpath location. For JARs on the file system,
+     * this is based only on their path, size and modification time, and therefore very cheap;
+     * otherwise (e.g. for exploded directories in an IDE) it falls back to a full {@link
+     * BinariesCache#digest(String)}.
+     *
+     * @param packagePath e.g. "ch/vorburger/mariadb4j/mariadb-11.4.5/linux"
+     * @return fingerprint, which changes whenever the binaries on the classpath do
+     * @throws IOException if the classpath could not be read
+     */
+    static String fingerprint(String packagePath) throws IOException {
+        List<Path> jars = Util.findJarsOnFileSystem(packagePath);
+        if (jars.isEmpty()) {
+            return BinariesCache.digest(packagePath);
+        }
+        StringBuilder sb = new StringBuilder(packagePath);
+        for (Path jar : jars) {
+            sb.append(';')
+                    .append(jar.toAbsolutePath())
+                    .append(':')
+                    .append(Files.size(jar))
+                    .append(':')
+                    .append(Files.getLastModifiedTime(jar).toMillis());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks whether the base directory has a manifest matching the given fingerprint, and whether
+     * all files it lists are (still) there with the expected size, e.g. not deleted by a tmp
+     * cleaner. This takes one stat() per file, but never reads any of them, so it is cheap enough
+     * to do on every start.
+     *
+     * @param baseDir directory the binaries were unpacked into
+     * @param fingerprint see {@link #fingerprint(String)}
+     * @return true if unpacking can be skipped
+     */
+    static boolean isValid(File baseDir, String fingerprint) {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(baseDir.toPath().resolve(FILE_NAME))) {
+            manifest.load(in);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable manifest in {}", baseDir, e);
+            return false;
+        }
+        if (!fingerprint.equals(manifest.getProperty(ARTIFACT_KEY))) {
+            logger.info("Manifest in {} is for other binaries, unpacking again", baseDir);
+            return false;
+        }
+        for (String key : manifest.stringPropertyNames()) {
+            if (key.startsWith(FILE_KEY_PREFIX)) {
+                File file = new File(baseDir, key.substring(FILE_KEY_PREFIX.length()));
+                if (!file.isFile() || file.length() != Long.parseLong(manifest.getProperty(key))) {
+                    logger.info("Manifest in {} is stale, missing or changed: {}", baseDir, file);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the manifest for the files which were just unpacked. Only these are counted, and not
+     * whatever else is in the base directory, which may e.g. be temporary files of another process
+     * which is unpacking into the same directory at the same time.
+     *
+     * @param baseDir directory the binaries were just unpacked into
+     * @param fingerprint see {@link #fingerprint(String)}
+     * @param files path (relative to the base directory) and size of every unpacked file, see
+     *     {@link Util#extractFromClasspathToFile(String, File, int, Map)}
+     * @return total size of all the unpacked files
+     * @throws IOException if the manifest could not be written
+     */
+    static long write(File baseDir, String fingerprint, Map<String, Long> files)
+            throws IOException {
+        Path basePath = baseDir.toPath();
+        Properties manifest = new Properties();
+        manifest.setProperty(ARTIFACT_KEY, fingerprint);
+        long totalSize = 0;
+        for (Map.Entry<String, Long> file : files.entrySet()) {
+            manifest.setProperty(FILE_KEY_PREFIX + file.getKey(), Long.toString(file.getValue()));
+            totalSize += file.getValue();
+        }
+        Path tempFile = Files.createTempFile(basePath, FILE_NAME, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                manifest.store(out, "MariaDB4j unpacked binaries");
+            }
+            Files.move(
+                    tempFile,
+                    basePath.resolve(FILE_NAME),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return totalSize;
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows of the result of a query run by a mysql command line client process, which are parsed from
+ * its --xml output while they are read. See {@link DB#query(String, String)}.
+ *
+ * <p>The --xml output is used instead of the --batch output, because the latter writes NULL values
+ * just like the string "NULL". In --xml mode, the client writes NULL values as empty elements with
+ * an xsi:nil attribute, and other values as they are (including tabs, newlines and carriage
+ * returns), only escaping the characters which are special in XML. It does however write NUL
+ * characters as spaces.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class ClientQueryResult implements Iterator<String[]>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientQueryResult.class);
+
+    private static final int MAX_ERROR_LINES = 100;
+
+    private final String sql;
+    private final Process process;
+    private final Reader stdout;
+    private final XmlRows rows;
+    private final Deque<String> stderr = new ArrayDeque<>();
+    private final CountDownLatch stderrEnd = new CountDownLatch(1);
+    private String[] next;
+
+    /**
+     * Starts the client, and waits for the first row of the result.
+     *
+     * @throws ManagedProcessException if the client could not be started, or the query failed
+     */
+    ClientQueryResult(List<String> commandLine, File workingDirectory, Charset charset, String sql)
+            throws ManagedProcessException {
+        this.sql = sql;
+        try {
+            process = new ProcessBuilder(commandLine).directory(workingDirectory).start();
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not start " + commandLine.get(0), e);
+        }
+        stdout = new InputStreamReader(process.getInputStream(), charset);
+        rows = new XmlRows(stdout);
+        Thread thread = new Thread(() -> pumpStderr(charset), "MariaDB4j-query-" + process.pid());
+        thread.setDaemon(true);
+        thread.start();
+        try (Writer stdin = new OutputStreamWriter(process.getOutputStream(), charset)) {
+            stdin.write(sql);
+            stdin.write("\n");
+        } catch (IOException e) {
+            // The client most probably already exited, and its exit value will tell why
+            logger.debug("Writing query to client failed", e);
+        }
+        try {
+            // Reading the first row (or the end of the output, for a failed query or a statement
+            // without a result) already happens here, so that errors are not thrown lazily
+            next = readRow();
+        } catch (ManagedProcessException e) {
+            close();
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw new ManagedProcessException("An error occurred while running a query: " + sql, e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Returns the next row, and already reads the one after it.
+     *
+     * @throws UncheckedIOException wrapping a {@link ManagedProcessException}, if reading the
+     *     result failed
+     */
+    @Override
+    public String[] next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        String[] row = next;
+        try {
+            next = readRow();
+        } catch (ManagedProcessException e) {
+            close();
+            throw new UncheckedIOException(e);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(
+                    new ManagedProcessException(
+                            "An error occurred while reading a query: " + sql, e));
+        }
+        return row;
+    }
+
+    /** Stops the client, if the result was not read until its end. */
+    @Override
+    public void close() {
+        next = null;
+        try {
+            stdout.close();
+        } catch (IOException e) {
+            logger.debug("Closing stdout of query client failed", e);
+        }
+        process.destroy();
+    }
+
+    private String[] readRow() throws IOException, ManagedProcessException {
+        String[] row;
+        try {
+            row = rows.next();
+        } catch (IOException e) {
+            // If the output ended early because the client failed, then that is the better error
+            skipRestOfStdout();
+            checkExitValue();
+            throw e;
+        }
+        if (row == null) {
+            skipRestOfStdout();
+            checkExitValue();
+        }
+        return row;
+    }
+
+    /**
+     * Reads (and ignores) the rest of the output, e.g. the results of further statements, as
+     * otherwise the client would block writing them, and never exit.
+     */
+    private void skipRestOfStdout() {
+        try {
+            rows.skipRest();
+        } catch (IOException e) {
+            logger.debug("Reading the rest of stdout of query client failed", e);
+        }
+    }
+
+    private void checkExitValue() throws ManagedProcessException {
+        String message = "An error occurred while running a query: " + sql;
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                throw new ManagedProcessException(message + " (client did not exit)");
+            }
+            if (process.exitValue() == 0) {
+                return;
+            }
+            stderrEnd.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException(message + " (interrupted)", e);
+        }
+        message += " (exit value " + process.exitValue() + ")";
+        synchronized (stderr) {
+            if (!stderr.isEmpty()) {
+                message += ", last lines of console:\n" + String.join("\n", stderr);
+            }
+        }
+        throw new ManagedProcessException(message);
+    }
+
+    private void pumpStderr(Charset charset) {
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(process.getErrorStream(), charset))) {
+            String errorLine;
+            while ((errorLine = reader.readLine()) != null) {
+                logger.warn("mysql: {}", errorLine);
+                synchronized (stderr) {
+                    if (stderr.size() == MAX_ERROR_LINES) {
+                        stderr.removeFirst();
+                    }
+                    stderr.addLast(errorLine);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Reading stderr of query client failed", e);
+        } finally {
+            stderrEnd.countDown();
+        }
+    }
+
+    /** Parser of the client's --xml output, see above. */
+    static final class XmlRows {
+
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int bufferPosition;
+        private int bufferLimit;
+        private boolean isInResultSet;
+
+        XmlRows(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next row.
+         *
+         * @return values, null for NULL; or null at the end of the result
+         * @throws IOException if reading failed, or the output ended in the middle of a row
+         */
+        String[] next() throws IOException {
+            String tag = readTag();
+            // Skip the <?xml ...?> declaration and the <resultset ...> start tag
+            while (!isInResultSet && tag != null) {
+                isInResultSet = tag.startsWith("resultset");
+                tag = readTag();
+            }
+            if (!"row".equals(tag)) {
+                // </resultset>, or no output at all, for a statement without a result
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            for (tag = readRequiredTag(); !tag.equals("/row"); tag = readRequiredTag()) {
+                if (tag.endsWith("/")) {
+                    // <field name="..." xsi:nil="true" />
+                    values.add(null);
+                } else {
+                    // <field name="...">value</field>
+                    values.add(readText());
+                    readRequiredTag();
+                }
+            }
+            return values.toArray(new String[0]);
+        }
+
+        /** Reads the rest of the output, without parsing it. */
+        void skipRest() throws IOException {
+            bufferPosition = bufferLimit;
+            while (reader.read(buffer) != -1) {
+                // Skip
+            }
+        }
+
+        private String readRequiredTag() throws IOException {
+            String tag = readTag();
+            if (tag == null) {
+                throw new IOException("Output of client ended in the middle of a row");
+            }
+            return tag;
+        }
+
+        /**
+         * Reads the next tag, skipping the whitespace before it. Its attribute values are escaped,
+         * so the first '>' ends it.
+         *
+         * @return the tag without its angle brackets, or null at the end of the output
+         */
+        private String readTag() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c != -1 && c != '<');
+            StringBuilder tag = new StringBuilder();
+            while (c != -1 && (c = read()) != '>') {
+                tag.append((char) c);
+            }
+            return c == -1 ? null : tag.toString();
+        }
+
+        /** Reads (and unescapes) the text up to the next tag, which is not read yet. */
+        private String readText() throws IOException {
+            StringBuilder text = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && c != '<') {
+                read();
+                if (c == '&') {
+                    StringBuilder entity = new StringBuilder();
+                    while ((c = read()) != -1 && c != ';') {
+                        entity.append((char) c);
+                    }
+                    text.append(unescape(entity.toString()));
+                } else {
+                    text.append((char) c);
+                }
+            }
+            return text.toString();
+        }
+
+        private static String unescape(String entity) throws IOException {
+            return switch (entity) {
+                case "lt" -> "<";
+                case "gt" -> ">";
+                case "amp" -> "&";
+                case "quot" -> "\"";
+                case "apos" -> "'";
+                default -> {
+                    try {
+                        if (entity.startsWith("#x")) {
+                            yield Character.toString(Integer.parseInt(entity.substring(2), 16));
+                        } else if (entity.startsWith("#")) {
+                            yield Character.toString(Integer.parseInt(entity.substring(1)));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        // Not a number, or not a code point; reported below
+                    }
+                    throw new IOException("Unknown entity in output of client: &" + entity + ";");
+                }
+            };
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                bufferPosition++;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (bufferPosition == bufferLimit) {
+                bufferLimit = reader.read(buffer);
+                bufferPosition = 0;
+                if (bufferLimit == -1) {
+                    bufferLimit = 0;
+                    return -1;
+                }
+            }
+            return buffer[bufferPosition];
+        }
+    }
+}
@@ -26,31 +26,60 @@ import static ch.vorburger.mariadb4j.DBConfiguration.Executable.InstallDB;
 import static ch.vorburger.mariadb4j.DBConfiguration.Executable.PrintDefaults;
 import static ch.vorburger.mariadb4j.DBConfiguration.Executable.Server;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import ch.vorburger.exec.ManagedProcess;
 import ch.vorburger.exec.ManagedProcessBuilder;
 import ch.vorburger.exec.ManagedProcessException;
 import ch.vorburger.exec.ManagedProcessListener;
 import ch.vorburger.exec.OutputStreamLogDispatcher;
 import ch.vorburger.mariadb4j.DBConfiguration.Executable;
+import ch.vorburger.mariadb4j.DBLifecycleListener.Phase;
+import ch.vorburger.mariadb4j.DBLifecycleListener.PhaseTiming;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides capability to install, start, and use an embedded database.
@@ -63,6 +92,26 @@ public class DB {
 
     private static final Logger logger = LoggerFactory.getLogger(DB.class);
 
+    private static final AtomicInteger asyncThreadCounter = new AtomicInteger();
+
+    /** How often to try to start on another reserved port, if the DB server could not bind one. */
+    private static final int MAX_PORT_ATTEMPTS = 5;
+
+    /** The start of the message of the DB server if it could not bind its port. */
+    private static final String PORT_NOT_BINDABLE = "Can't start server: Bind on TCP/IP port";
+
+    // Starting and stopping is blocking (on processes), so not for the ForkJoinPool.commonPool()
+    static final Executor defaultAsyncExecutor =
+            Executors.newCachedThreadPool(
+                    runnable -> {
+                        Thread thread =
+                                new Thread(
+                                        runnable,
+                                        "MariaDB4j-async-" + asyncThreadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
     protected final DBConfiguration configuration;
 
     private File baseDir;
@@ -70,6 +119,15 @@ public class DB {
     private File dataDir;
     private File tmpDir;
     private ManagedProcess mysqldProcess;
+    private volatile boolean hasMysqldExited;
+    private volatile long mysqldFirstOutputNanos;
+    private final List<PhaseTiming> startupTimings = new CopyOnWriteArrayList<>();
+    private long bytesUnpacked;
+    private JdbcScriptRunner jdbcScriptRunner;
+    private SourcedScripts sourcedScripts;
+    private final List<DBSession> sessions = new CopyOnWriteArrayList<>();
+    private boolean isCleaningUpOnExit = true;
+    private boolean isCleanupOnExitRegistered;
 
     protected int dbStartMaxWaitInMS = 30000;
 
@@ -98,7 +156,10 @@ public class DB {
      */
     public static DB newEmbeddedDB(DBConfiguration config) throws ManagedProcessException {
         DB db = new DB(config);
+        Instant startedAt = Instant.now();
+        long startNanos = System.nanoTime();
         db.prepareDirectories();
+        db.phaseCompleted(Phase.PREPARE_DIRECTORIES, startedAt, startNanos, 0);
         // If the data dir does not already exist and is empty, proceed to install normally.
         // Otherwise, we will reuse the existing data directory.
         try {
@@ -106,8 +167,14 @@ public class DB {
             if (Files.isDirectory(absPath)) {
                 try (Stream<Path> entries = Files.list(absPath)) {
                     if (entries.findFirst().isEmpty()) {
+                        startedAt = Instant.now();
+                        startNanos = System.nanoTime();
                         db.unpackEmbeddedDb();
+                        db.phaseCompleted(Phase.UNPACK, startedAt, startNanos, db.bytesUnpacked);
+                        startedAt = Instant.now();
+                        startNanos = System.nanoTime();
                         db.install();
+                        db.phaseCompleted(Phase.INSTALL, startedAt, startNanos, 0);
                     }
                 }
             }
@@ -134,8 +201,50 @@ public class DB {
         return newEmbeddedDB(config.build());
     }
 
+    /**
+     * Asynchronous variant of {@link #newEmbeddedDB(DBConfiguration)}, which unpacks and installs
+     * the database in the background. This allows to prepare several databases at the same time, or
+     * to do something else meanwhile.
+     *
+     * @param config Configuration of the embedded instance
+     * @return future which completes with the new DB instance, or exceptionally with a {@link
+     *     ManagedProcessException} if something fatal went wrong
+     */
+    public static CompletableFuture<DB> newEmbeddedDBAsync(DBConfiguration config) {
+        return newEmbeddedDBAsync(config, defaultAsyncExecutor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #newEmbeddedDB(DBConfiguration)}, see {@link
+     * #newEmbeddedDBAsync(DBConfiguration)}.
+     *
+     * @param config Configuration of the embedded instance
+     * @param executor Executor to unpack and install on
+     * @return future which completes with the new DB instance
+     */
+    public static CompletableFuture<DB> newEmbeddedDBAsync(
+            DBConfiguration config, Executor executor) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return newEmbeddedDB(config);
+                    } catch (ManagedProcessException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
+    }
+
     protected ManagedProcess createDBInstallProcess() throws ManagedProcessException, IOException {
-        logger.info("Installing a new embedded database to: " + baseDir);
+        return createDBInstallProcess(dataDir);
+    }
+
+    protected ManagedProcess createDBInstallProcess(File installDataDir)
+            throws ManagedProcessException, IOException {
+        if (configuration.isInstallingViaBootstrap() && !configuration.isWindows()) {
+            return createDBBootstrapInstallProcess(installDataDir);
+        }
+        logger.info("Installing a new embedded database to: " + installDataDir);
         File installDbCmdFile = configuration.getExecutable(Executable.InstallDB);
         ManagedProcessBuilder builder = new ManagedProcessBuilder(installDbCmdFile);
         builder.setOutputStreamLogDispatcher(getOutputStreamLogDispatcher("mysql_install_db"));
@@ -143,15 +252,77 @@ public class DB {
                 .put(configuration.getOSLibraryEnvironmentVarName(), libDir.getAbsolutePath());
         builder.setWorkingDirectory(baseDir);
         if (!configuration.isWindows()) {
-            builder.addFileArgument("--datadir", dataDir);
+            builder.addFileArgument("--datadir", installDataDir);
             builder.addFileArgument("--basedir", baseDir);
             builder.addArgument("--no-defaults");
             builder.addArgument("--force");
             builder.addArgument("--skip-name-resolve");
             // builder.addArgument("--verbose");
         } else {
-            builder.addFileArgument("--datadir", dataDir.getCanonicalFile());
+            builder.addFileArgument("--datadir", installDataDir.getCanonicalFile());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a process which installs the system tables by feeding the SQL scripts bundled in the
+     * "share" directory directly into "mariadbd --bootstrap", like the install script does, but
+     * without the overhead of the script itself and its helper processes.
+     *
+     * @param installDataDir data directory to install into
+     * @return process which has to be started and waited for
+     * @throws ManagedProcessException if the process could not be created
+     * @throws IOException if a SQL script could not be read
+     */
+    protected ManagedProcess createDBBootstrapInstallProcess(File installDataDir)
+            throws ManagedProcessException, IOException {
+        logger.info("Installing a new embedded database (via bootstrap) to: " + installDataDir);
+        File shareDir = new File(baseDir, "share");
+        ManagedProcessBuilder builder =
+                new ManagedProcessBuilder(configuration.getExecutable(Server));
+        builder.setOutputStreamLogDispatcher(getOutputStreamLogDispatcher("mysqld --bootstrap"));
+        builder.getEnvironment()
+                .put(configuration.getOSLibraryEnvironmentVarName(), libDir.getAbsolutePath());
+        builder.setWorkingDirectory(baseDir);
+        builder.addArgument("--no-defaults"); // *MUST* be first!
+        builder.addFileArgument("--lc-messages-dir", shareDir);
+        builder.addArgument("--bootstrap");
+        builder.addFileArgument("--basedir", baseDir);
+        builder.addFileArgument("--datadir", installDataDir);
+        builder.addArgument("--log-warnings=0");
+        builder.addArgument("--enforce-storage-engine=");
+        builder.addFileArgument("--plugin-dir", new File(baseDir, "lib/plugin"));
+        builder.addArgument("--max_allowed_packet=8M");
+        builder.addArgument("--net_buffer_length=16K");
+
+        List<String> scripts = new ArrayList<>();
+        scripts.add("mariadb_system_tables.sql");
+        scripts.add("mariadb_performance_tables.sql");
+        scripts.add("mariadb_system_tables_data.sql");
+        if (!configuration.isInstallingMinimalSystemTables()) {
+            scripts.add("fill_help_tables.sql");
+        }
+        scripts.add("maria_add_gis_sp_bootstrap.sql");
+        if (!configuration.isInstallingMinimalSystemTables()) {
+            scripts.add("mariadb_sys_schema.sql");
+            scripts.add("mariadb_test_db.sql");
         }
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("create database if not exists mysql;\n");
+        sql.append("use mysql;\n");
+        sql.append("SET @auth_root_socket='")
+                .append(SystemUtils.USER_NAME.replace("'", "''"))
+                .append("';\n");
+        for (String script : scripts) {
+            for (String line : Files.readAllLines(new File(shareDir, script).toPath(), UTF_8)) {
+                // Like the install script does with --skip-name-resolve
+                if (!line.contains("@current_hostname")) {
+                    sql.append(line).append('\n');
+                }
+            }
+        }
+        builder.setInputStream(new ByteArrayInputStream(sql.toString().getBytes(UTF_8)));
         return builder.build();
     }
 
@@ -162,36 +333,177 @@ public class DB {
      */
     protected synchronized void install() throws ManagedProcessException {
         try {
-            ManagedProcess mysqlInstallProcess = createDBInstallProcess();
-            mysqlInstallProcess.start();
-            mysqlInstallProcess.waitForExit();
+            if (configuration.isUsingDataDirTemplateCache()) {
+                installFromTemplate();
+            } else {
+                ManagedProcess mysqlInstallProcess = createDBInstallProcess();
+                mysqlInstallProcess.start();
+                mysqlInstallProcess.waitForExit();
+            }
         } catch (Exception e) {
             throw new ManagedProcessException("An error occurred while installing the database", e);
         }
         logger.info("Installation complete.");
     }
 
+    private void installFromTemplate() throws IOException {
+        File templateDir =
+                DataDirTemplateCache.getTemplateDir(
+                        configuration.getDataDirTemplateCacheDir(), getDataDirTemplateKey());
+        boolean installed =
+                BinariesCache.populate(
+                        templateDir,
+                        () -> {
+                            // Clean up whatever a previously failed installation left behind
+                            FileUtils.cleanDirectory(templateDir);
+                            try {
+                                ManagedProcess mysqlInstallProcess =
+                                        createDBInstallProcess(templateDir);
+                                mysqlInstallProcess.start();
+                                mysqlInstallProcess.waitForExit();
+                            } catch (ManagedProcessException e) {
+                                throw new IOException(
+                                        "Installing data directory template failed", e);
+                            }
+                        });
+        if (!installed) {
+            logger.info("Using already installed data directory template: {}", templateDir);
+        }
+        DataDirTemplateCache.copy(templateDir, dataDir);
+    }
+
+    /**
+     * Everything which influences the content of a freshly installed data directory. The server
+     * arguments are not part of it, because installing does not use them; so e.g. a different
+     * performance profile or memory budget still uses the same template.
+     *
+     * @return key for the data directory template cache
+     * @throws IOException if the binaries could not be fingerprinted
+     */
+    protected String getDataDirTemplateKey() throws IOException {
+        String binaries;
+        if (configuration.getBinariesClassPathLocation() != null) {
+            binaries = BinariesManifest.fingerprint(configuration.getBinariesClassPathLocation());
+        } else {
+            File serverExe = configuration.getExecutable(Server);
+            binaries =
+                    serverExe.getAbsolutePath()
+                            + ":"
+                            + serverExe.length()
+                            + ":"
+                            + serverExe.lastModified();
+        }
+        return String.join(
+                "\n",
+                binaries,
+                String.valueOf(configuration.getDefaultCharacterSet()),
+                "bootstrap=" + configuration.isInstallingViaBootstrap(),
+                "minimal=" + configuration.isInstallingMinimalSystemTables(),
+                "securityDisabled=" + configuration.isSecurityDisabled(),
+                // Can log in as root over the socket, see createDBBootstrapInstallProcess()
+                "user=" + SystemUtils.USER_NAME);
+    }
+
     /**
      * Starts up the database, using the data directory and port specified in the configuration.
      *
+     * <p>If the port was reserved from a {@link DBConfigurationBuilder#setPortRange(int, int)
+     * range}, and another program has bound it, this moves to another port of the range and tries
+     * again.
+     *
      * @throws ch.vorburger.exec.ManagedProcessException if something fatal went wrong
      */
     public synchronized void start() throws ManagedProcessException {
+        PortReservation portReservation = getPortReservation();
+        for (int attempt = 1; ; attempt++) {
+            if (portReservation != null) {
+                portReservation.ensureReserved();
+            }
+            try {
+                startOnce();
+                return;
+            } catch (ManagedProcessException e) {
+                if (portReservation == null
+                        || attempt == MAX_PORT_ATTEMPTS
+                        || mysqldProcess == null
+                        || !mysqldProcess.getLastConsoleLines().contains(PORT_NOT_BINDABLE)) {
+                    throw e;
+                }
+                logger.warn(
+                        "Database could not bind port {}, retrying on another port",
+                        portReservation.getPort());
+                portReservation.moveToAnotherPort();
+            }
+        }
+    }
+
+    private PortReservation getPortReservation() {
+        return configuration instanceof DBConfiguration.Impl impl
+                ? impl.getPortReservation()
+                : null;
+    }
+
+    private void startOnce() throws ManagedProcessException {
         logger.info("Starting up the database...");
+        startupTimings.removeIf(
+                timing ->
+                        timing.getPhase() == Phase.SPAWN
+                                || timing.getPhase() == Phase.WAIT_UNTIL_READY);
         boolean ready = false;
         try {
             mysqldProcess = startPreparation();
-            ready =
-                    mysqldProcess.startAndWaitForConsoleMessageMaxMs(
-                            getReadyForConnectionsTag(), dbStartMaxWaitInMS);
+            Instant startedAt = Instant.now();
+            long startNanos = System.nanoTime();
+            if (configuration.isUsingProtocolReadinessProbe()) {
+                mysqldProcess.start();
+                phaseCompleted(Phase.SPAWN, startedAt, startNanos, 0);
+                startedAt = Instant.now();
+                startNanos = System.nanoTime();
+                ready =
+                        ReadinessProbe.waitUntilReady(
+                                () -> !hasMysqldExited,
+                                ReadinessProbe.getAddress(
+                                        configuration, getAbsoluteSocketFile().getPath()),
+                                dbStartMaxWaitInMS);
+            } else {
+                ready =
+                        mysqldProcess.startAndWaitForConsoleMessageMaxMs(
+                                getReadyForConnectionsTag(), dbStartMaxWaitInMS);
+                if (ready) {
+                    // The process was launched when it wrote its first console output
+                    long spawnedNanos = mysqldFirstOutputNanos;
+                    if (spawnedNanos == 0) {
+                        spawnedNanos = System.nanoTime();
+                    }
+                    phaseCompleted(Phase.SPAWN, startedAt, startNanos, spawnedNanos, 0);
+                    startedAt = startedAt.plusNanos(spawnedNanos - startNanos);
+                    startNanos = spawnedNanos;
+                }
+            }
+            if (ready) {
+                phaseCompleted(Phase.WAIT_UNTIL_READY, startedAt, startNanos, 0);
+            }
         } catch (Exception e) {
             logger.error("failed to start mysqld", e);
             throw new ManagedProcessException("An error occurred while starting the database", e);
         }
         if (!ready) {
+            if (configuration.isUsingProtocolReadinessProbe() && hasMysqldExited) {
+                throw new ManagedProcessException(
+                        "Database exited before it was ready for connections: "
+                                + mysqldProcess.getLastConsoleLines());
+            }
             if (mysqldProcess != null && mysqldProcess.isAlive()) {
                 mysqldProcess.destroy();
             }
+            if (configuration.isUsingProtocolReadinessProbe()) {
+                throw new ManagedProcessException(
+                        "Database does not seem to have started up correctly? No protocol"
+                                + " handshake received within "
+                                + dbStartMaxWaitInMS
+                                + "ms: "
+                                + mysqldProcess.getLastConsoleLines());
+            }
             throw new ManagedProcessException(
                     "Database does not seem to have started up correctly? Magic string not seen in "
                             + dbStartMaxWaitInMS
@@ -199,7 +511,66 @@ public class DB {
                             + getReadyForConnectionsTag()
                             + mysqldProcess.getLastConsoleLines());
         }
-        logger.info("Database startup complete.");
+        logger.info("Database startup complete. Timings: {}", startupTimings);
+    }
+
+    /**
+     * How long each phase of creating (by {@link #newEmbeddedDB(DBConfiguration)}) and of the last
+     * {@link #start()} of this DB took. Phases which were skipped (e.g. unpacking and installing,
+     * when reusing an existing data directory) are not included.
+     *
+     * @return timings, in the order in which the phases completed
+     */
+    public List<PhaseTiming> getStartupTimings() {
+        return List.copyOf(startupTimings);
+    }
+
+    private void phaseCompleted(Phase phase, Instant startedAt, long startNanos, long bytes) {
+        phaseCompleted(phase, startedAt, startNanos, System.nanoTime(), bytes);
+    }
+
+    private void phaseCompleted(
+            Phase phase, Instant startedAt, long startNanos, long endNanos, long bytes) {
+        PhaseTiming timing =
+                new PhaseTiming(phase, startedAt, Duration.ofNanos(endNanos - startNanos), bytes);
+        startupTimings.add(timing);
+        DBLifecycleListener listener = configuration.getLifecycleListener();
+        if (listener != null) {
+            try {
+                listener.onPhaseCompleted(timing);
+            } catch (RuntimeException e) {
+                logger.warn("DBLifecycleListener failed on {}", timing, e);
+            }
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #start()}.
+     *
+     * @return future which completes with this DB once it is ready for connections, or
+     *     exceptionally with a {@link ManagedProcessException} if something fatal went wrong
+     */
+    public CompletableFuture<DB> startAsync() {
+        return startAsync(defaultAsyncExecutor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #start()}.
+     *
+     * @param executor Executor to start (and wait for the database to be ready) on
+     * @return future which completes with this DB once it is ready for connections
+     */
+    public CompletableFuture<DB> startAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        start();
+                        return this;
+                    } catch (ManagedProcessException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
     }
 
     protected String getReadyForConnectionsTag() {
@@ -229,15 +600,68 @@ public class DB {
             builder.addFileArgument("--tmpdir", tmpDir.getCanonicalFile());
         }
         addPortAndMaybeSocketArguments(builder);
+        // Before the configured arguments, so that these can override any of the profile's, the
+        // automatic sizing's and the memory budget's
+        for (String arg : configuration.getPerformanceProfile().getArgs()) {
+            builder.addArgument(arg);
+        }
+        if (configuration.getAutoSizingInstances() > 0) {
+            for (String arg :
+                    new AutoSizing()
+                            .getArgs(
+                                    configuration.getAutoSizingInstances(),
+                                    Runtime.getRuntime().maxMemory(),
+                                    configuration.getMemoryBudget() == 0)) {
+                builder.addArgument(arg);
+            }
+        }
+        if (configuration.getMemoryBudget() > 0) {
+            for (String arg : MemoryBudget.getArgs(configuration.getMemoryBudget())) {
+                builder.addArgument(arg);
+            }
+        }
         for (String arg : configuration.getArgs()) {
             builder.addArgument(arg);
         }
         if (StringUtils.isNotBlank(configuration.getDefaultCharacterSet())) {
             builder.addArgument("--character-set-server=", configuration.getDefaultCharacterSet());
         }
-        cleanupOnExit();
-        // because cleanupOnExit() just installed our (class DB) own
-        // Shutdown hook, we don't need the one from ManagedProcess:
+        hasMysqldExited = false;
+        if (!configuration.isUsingProtocolReadinessProbe()) {
+            mysqldFirstOutputNanos = 0;
+            OutputStream firstOutput =
+                    new OutputStream() {
+                        @Override
+                        public void write(int b) {
+                            if (mysqldFirstOutputNanos == 0) {
+                                mysqldFirstOutputNanos = System.nanoTime();
+                            }
+                        }
+                    };
+            builder.addStdOut(firstOutput);
+            builder.addStdErr(firstOutput);
+        }
+        // ManagedProcess.isAlive() does not notice mysqld exiting without a listener
+        builder.setProcessListener(
+                new ManagedProcessListener() {
+                    @Override
+                    public void onProcessComplete(int exitValue) {
+                        hasMysqldExited = true;
+                    }
+
+                    @Override
+                    public void onProcessFailed(int exitValue, Throwable throwable) {
+                        hasMysqldExited = true;
+                    }
+                });
+        if (isCleaningUpOnExit && !isCleanupOnExitRegistered) {
+            // only once, not again on every start() (or its retries on another port)
+            cleanupOnExit();
+            isCleanupOnExitRegistered = true;
+        }
+        // because cleanupOnExit() installed our (class DB) own
+        // Shutdown hook (or our owner, e.g. DBPool, has one),
+        // we don't need the one from ManagedProcess:
         builder.setDestroyOnShutdown(false);
         logger.info("mysqld executable: " + builder.getExecutable());
         return builder.build();
@@ -254,7 +678,11 @@ public class DB {
 
     protected void addPortAndMaybeSocketArguments(ManagedProcessBuilder builder)
             throws IOException {
-        builder.addArgument("--port=" + configuration.getPort());
+        if (configuration.isSocketOnly()) {
+            builder.addArgument("--skip-networking");
+        } else {
+            builder.addArgument("--port=" + configuration.getPort());
+        }
         if (!configuration.isWindows()) {
             builder.addFileArgument("--socket", getAbsoluteSocketFile());
         }
@@ -366,24 +794,370 @@ public class DB {
     public void source(
             String resource, String username, String password, String dbName, boolean force)
             throws ManagedProcessException {
+        String logInfoText = "script file sourced from the classpath at: " + resource;
+        String hash =
+                getScriptHash(
+                        () -> getClass().getClassLoader().getResourceAsStream(resource),
+                        logInfoText);
+        if (isAlreadySourced(hash, dbName, logInfoText)) {
+            return;
+        }
         try (InputStream from = getClass().getClassLoader().getResourceAsStream(resource)) {
             if (from == null) {
                 throw new IllegalArgumentException(
                         "Could not find script file on the classpath at: " + resource);
             }
-            run(
-                    "script file sourced from the classpath at: " + resource,
-                    from,
-                    username,
-                    password,
-                    dbName,
-                    force);
+            run(logInfoText, from, username, password, dbName, force);
+            recordSourced(hash, dbName, force, logInfoText);
         } catch (IOException ioe) {
             logger.warn(
                     "Issue trying to close source InputStream. Raise warning and continue.", ioe);
         }
     }
 
+    /**
+     * Takes in a script file on the file system and sources it via the mysql command line tool.
+     * Optionally force continue if individual statements fail.
+     *
+     * <p>The command line tool reads the file itself (via its "source" command), so unlike for the
+     * {@link InputStream} variants its content is never copied through the JVM, which makes this
+     * the cheapest way to load large scripts, such as dumps. (When running scripts via JDBC, see
+     * {@link DBConfigurationBuilder#setRunningScriptsViaJdbc(boolean)}, it is streamed.)
+     *
+     * @param file the path to the script file to source
+     * @param username the username used to login to the database
+     * @param password the password used to login to the database
+     * @param dbName the name of the database (schema) to source into
+     * @param force if true then continue on error (mysql --force)
+     * @throws ch.vorburger.exec.ManagedProcessException if something fatal went wrong
+     */
+    public void source(Path file, String username, String password, String dbName, boolean force)
+            throws ManagedProcessException {
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Could not find script file at: " + file);
+        }
+        String logInfoText = "script file sourced from: " + file;
+        String hash = getScriptHash(() -> Files.newInputStream(file), logInfoText);
+        if (isAlreadySourced(hash, dbName, logInfoText)) {
+            return;
+        }
+        if (configuration.isRunningScriptsViaJdbc()) {
+            try (InputStream from = Files.newInputStream(file)) {
+                run(logInfoText, from, username, password, dbName, force);
+            } catch (ManagedProcessException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new ManagedProcessException("Could not read " + logInfoText, e);
+            }
+            recordSourced(hash, dbName, force, logInfoText);
+            return;
+        }
+        logger.info("Running a " + logInfoText);
+        // The client can't handle the whole argument being quoted, so don't let commons-exec do
+        // that; the file name extends to the end of the line, so spaces in it are fine anyway.
+        runClient(
+                logInfoText,
+                builder -> {
+                    // Unlike for scripts read from stdin, the client otherwise continues after
+                    // errors in sourced files
+                    if (!force) {
+                        builder.addArgument("--abort-source-on-error");
+                    }
+                    builder.addArgument("--execute=source " + file.toAbsolutePath(), false);
+                },
+                username,
+                password,
+                dbName,
+                force);
+        recordSourced(hash, dbName, force, logInfoText);
+        logger.info("Successfully ran the " + logInfoText);
+    }
+
+    /**
+     * Hash of a script, to skip it if it was already sourced, see {@link
+     * DBConfiguration#isSkippingUnchangedScripts()}.
+     *
+     * @return the hash, or null if scripts are not skipped (or the script does not exist)
+     */
+    private String getScriptHash(IOSupplier<InputStream> script, String logInfoText)
+            throws ManagedProcessException {
+        if (!configuration.isSkippingUnchangedScripts()) {
+            return null;
+        }
+        try (InputStream in = script.get()) {
+            return in != null ? SourcedScripts.hash(in) : null;
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not read " + logInfoText, e);
+        }
+    }
+
+    private boolean isAlreadySourced(String hash, String dbName, String logInfoText) {
+        if (hash == null) {
+            return false;
+        }
+        // E.g. a script could have dropped its own database
+        forgetSourcedScriptsOfMissingDBs(dbName != null ? List.of(dbName) : List.of());
+        try {
+            if (getSourcedScripts().contains(dbName, hash)) {
+                logger.info("Skipping the {}, because it was already sourced before", logInfoText);
+                return true;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read which scripts were already sourced, so running all", e);
+        }
+        return false;
+    }
+
+    /**
+     * Records that a script was sourced, unless it was forced, because then some of its statements
+     * may have failed, and it should run again next time.
+     */
+    private void recordSourced(String hash, String dbName, boolean force, String logInfoText) {
+        if (hash == null || force) {
+            return;
+        }
+        try {
+            getSourcedScripts().add(dbName, hash);
+        } catch (IOException e) {
+            logger.warn("Could not record the {}, so it will run again next time", logInfoText, e);
+        }
+    }
+
+    /**
+     * Forgets which scripts were sourced into databases which do not exist (anymore), so that they
+     * are sourced again if the databases are (re-)created. Only databases whose name is used as is
+     * for their directory in the data directory are checked.
+     */
+    private void forgetSourcedScriptsOfMissingDBs(Collection<String> dbNames) {
+        forgetSourcedScripts(
+                dbNames.stream()
+                        .filter(dbName -> dbName.matches("[A-Za-z0-9_]+"))
+                        .filter(dbName -> !new File(dataDir, dbName).isDirectory())
+                        .toList());
+    }
+
+    private void forgetSourcedScripts(Collection<String> dbNames) {
+        if (!configuration.isSkippingUnchangedScripts() || dbNames.isEmpty()) {
+            return;
+        }
+        try {
+            getSourcedScripts().remove(dbNames);
+        } catch (IOException e) {
+            logger.warn("Could not forget the scripts sourced into {}", dbNames, e);
+        }
+    }
+
+    private synchronized SourcedScripts getSourcedScripts() {
+        if (sourcedScripts == null) {
+            sourcedScripts = new SourcedScripts(dataDir);
+        }
+        return sourcedScripts;
+    }
+
+    /**
+     * Sources script files into several databases (schemas) concurrently, each via its own mysql
+     * command line client (or JDBC connection). The scripts for one database are sourced one after
+     * the other, in the given order; the databases must already exist.
+     *
+     * @param scripts the script files to source, by name of the database to source them into
+     * @param parallelism how many databases to source scripts into at the same time
+     * @throws ch.vorburger.exec.ManagedProcessException if sourcing any of the scripts failed
+     */
+    public void sourceAll(Map<String, List<Path>> scripts, int parallelism)
+            throws ManagedProcessException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        if (parallelism == 1 || scripts.size() < 2) {
+            for (Map.Entry<String, List<Path>> entry : scripts.entrySet()) {
+                sourceAll(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(parallelism, scripts.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<Path>> entry : scripts.entrySet()) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    sourceAll(entry.getKey(), entry.getValue());
+                                    return null;
+                                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ManagedProcessException managedProcessException) {
+                throw managedProcessException;
+            }
+            throw new ManagedProcessException("Sourcing scripts failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagedProcessException("Interrupted while sourcing scripts", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void sourceAll(String dbName, List<Path> files) throws ManagedProcessException {
+        for (Path file : files) {
+            source(file, null, null, dbName, false);
+        }
+    }
+
+    /**
+     * Loads rows into a table. See {@link #bulkLoad(String, String, Stream, boolean)}.
+     *
+     * @param dbName the name of the database (schema) of the table
+     * @param table the name of the table to load the rows into
+     * @param rows the rows to load, each with one value for every column of the table, in order
+     * @throws ch.vorburger.exec.ManagedProcessException if loading failed
+     */
+    public void bulkLoad(String dbName, String table, Stream<Object[]> rows)
+            throws ManagedProcessException {
+        bulkLoad(dbName, table, rows, false);
+    }
+
+    /**
+     * Loads rows into a table, via LOAD DATA LOCAL INFILE, which is much faster than INSERT
+     * statements. The rows are written to a temporary file while they are read from the stream, so
+     * even huge numbers of them never have to be in memory at the same time. If any row cannot be
+     * loaded, this fails, and (for transactional tables) no rows are loaded.
+     *
+     * <p>Values are loaded as text, via toString(), except null (for NULL) and Booleans (as 1 and
+     * 0). byte[] values are not supported.
+     *
+     * @param dbName the name of the database (schema) of the table
+     * @param table the name of the table to load the rows into
+     * @param rows the rows to load, each with one value for every column of the table, in order
+     * @param skipKeyChecks if true then unique and foreign key checks are disabled while loading
+     * @throws ch.vorburger.exec.ManagedProcessException if loading failed
+     * @throws IllegalArgumentException if a value is of an unsupported type (before anything is
+     *     loaded; so does any other exception thrown by the stream)
+     */
+    public void bulkLoad(String dbName, String table, Stream<Object[]> rows, boolean skipKeyChecks)
+            throws ManagedProcessException {
+        String logInfoText = "bulk load into table " + table;
+        // The rows are not streamed straight into the client, because it would then commit
+        // whatever it got if the stream failed halfway (the error would only reach the thread
+        // pumping the rows, and the client would just see the end of its input)
+        Path file;
+        try {
+            file = Files.createTempFile(tmpDir.toPath(), "bulkLoad", ".tsv");
+        } catch (IOException e) {
+            throw new ManagedProcessException("Could not write rows for " + logInfoText, e);
+        }
+        try {
+            try (InputStream tsv = new TsvInputStream(rows.iterator())) {
+                Files.copy(tsv, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new ManagedProcessException("Could not write rows for " + logInfoText, e);
+            }
+            loadData(logInfoText, dbName, table, file.toString(), "utf8mb4", "", skipKeyChecks);
+        } finally {
+            FileUtils.deleteQuietly(file.toFile());
+        }
+    }
+
+    /**
+     * Loads a CSV file into a table. See {@link #bulkLoad(String, String, Path, boolean)}.
+     *
+     * @param dbName the name of the database (schema) of the table
+     * @param table the name of the table to load the CSV file into
+     * @param csvFile the CSV file to load
+     * @throws ch.vorburger.exec.ManagedProcessException if loading failed
+     */
+    public void bulkLoad(String dbName, String table, Path csvFile) throws ManagedProcessException {
+        bulkLoad(dbName, table, csvFile, false);
+    }
+
+    /**
+     * Loads a CSV file into a table, via LOAD DATA LOCAL INFILE, which is much faster than INSERT
+     * statements. If any line cannot be loaded, this fails, and (for transactional tables) no lines
+     * are loaded.
+     *
+     * <p>The file must be in the DB's default character set, have no header line, and have one line
+     * (terminated by \n) with one comma separated value for every column of the table, in order.
+     * Values may be enclosed in double quotes (with doubled double quotes within them), and
+     * unquoted NULL values are NULL.
+     *
+     * @param dbName the name of the database (schema) of the table
+     * @param table the name of the table to load the CSV file into
+     * @param csvFile the CSV file to load
+     * @param skipKeyChecks if true then unique and foreign key checks are disabled while loading
+     * @throws ch.vorburger.exec.ManagedProcessException if loading failed
+     */
+    public void bulkLoad(String dbName, String table, Path csvFile, boolean skipKeyChecks)
+            throws ManagedProcessException {
+        if (!Files.isRegularFile(csvFile)) {
+            throw new IllegalArgumentException("Could not find CSV file at: " + csvFile);
+        }
+        String charset = configuration.getDefaultCharacterSet();
+        loadData(
+                "bulk load of " + csvFile + " into table " + table,
+                dbName,
+                table,
+                csvFile.toAbsolutePath().toString(),
+                charset != null ? charset : "utf8mb4",
+                " FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''",
+                skipKeyChecks);
+    }
+
+    /** Runs LOAD DATA LOCAL INFILE via the mysql command line client. */
+    private void loadData(
+            String logInfoText,
+            String dbName,
+            String table,
+            String file,
+            String charset,
+            String format,
+            boolean skipKeyChecks)
+            throws ManagedProcessException {
+        StringBuilder sql = new StringBuilder();
+        if (skipKeyChecks) {
+            // These are session variables, so this only affects this load
+            sql.append("SET unique_checks=0, foreign_key_checks=0;\n");
+        }
+        // With LOCAL, rows which fail (e.g. because of duplicate keys) are skipped with a warning
+        // instead of an error, so check for warnings, and roll back if there were any
+        sql.append("START TRANSACTION;\n");
+        sql.append("LOAD DATA LOCAL INFILE '")
+                .append(file.replace("\\", "\\\\").replace("'", "\\'"))
+                .append("' INTO TABLE `")
+                .append(table.replace("`", "``"))
+                .append("` CHARACTER SET ")
+                .append(charset)
+                .append(format)
+                .append(";\n");
+        sql.append("SHOW WARNINGS LIMIT 10;\n");
+        sql.append("DELIMITER //\n");
+        sql.append("BEGIN NOT ATOMIC IF @@warning_count > 0 THEN ");
+        sql.append("SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'LOAD DATA had warnings'; ");
+        sql.append("END IF; END//\n");
+        sql.append("DELIMITER ;\n");
+        sql.append("COMMIT;\n");
+        logger.info("Running a " + logInfoText);
+        runClient(
+                logInfoText,
+                builder -> {
+                    builder.addArgument("--local-infile=1");
+                    builder.setInputStream(
+                            new ByteArrayInputStream(
+                                    sql.toString()
+                                            .getBytes(
+                                                    JdbcScriptRunner.getScriptCharset(
+                                                            configuration))));
+                },
+                null,
+                null,
+                dbName,
+                false);
+        logger.info("Successfully ran the " + logInfoText);
+    }
+
     /**
      * Run.
      *
@@ -470,6 +1244,119 @@ public class DB {
         }
     }
 
+    /**
+     * Opens a session with a long-lived mysql command line client, to run many commands (with the
+     * exact same behaviour as {@link #run(String, String, String, String)}) without starting a new
+     * client (and authenticating) for each of them.
+     *
+     * @param username the username used to login to the database
+     * @param password the password used to login to the database
+     * @param dbName the name of the database (schema) to use
+     * @return the session, which must be closed (else it is closed when this DB is stopped)
+     * @throws ch.vorburger.exec.ManagedProcessException if the client could not be started
+     */
+    public DBSession openSession(String username, String password, String dbName)
+            throws ManagedProcessException {
+        List<String> commandLine = getClientCommandLine(username, password, dbName);
+        // Else the output of the sentinel queries would only arrive when the client exits
+        commandLine.add("--unbuffered");
+        DBSession session =
+                new DBSession(
+                        commandLine,
+                        baseDir,
+                        JdbcScriptRunner.getScriptCharset(configuration),
+                        getOutputStreamLogDispatcher("mysql"));
+        session.open();
+        sessions.removeIf(DBSession::isClosed);
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * Runs a query, and returns the rows of its result. See {@link #query(String, String, String,
+     * String)}.
+     *
+     * @param sql the query (a single statement)
+     * @param dbName the name of the database (schema) to use
+     * @return rows, which must be closed (best with try-with-resources)
+     * @throws ch.vorburger.exec.ManagedProcessException if the query failed
+     */
+    public Stream<String[]> query(String sql, String dbName) throws ManagedProcessException {
+        return query(sql, null, null, dbName);
+    }
+
+    /**
+     * Runs a query, and returns the rows of its result, with the values as Strings (null for NULL).
+     * This does not need a JDBC driver. Rows are read lazily while the returned stream is consumed,
+     * so even large results do not have to fit into memory.
+     *
+     * <p>The query is run by a mysql command line client, whose --xml output is parsed; this
+     * returns NUL characters as spaces. If {@link DBConfiguration#isRunningScriptsViaJdbc()}, it is
+     * run over JDBC instead.
+     *
+     * <p>A failing query makes this throw. Errors while reading the rows are thrown by the stream
+     * as an {@link java.io.UncheckedIOException} wrapping a ManagedProcessException.
+     *
+     * <p>If the SQL has several statements, all of them run, but only the rows of the first result
+     * are returned.
+     *
+     * @param sql the query (a single statement), or a statement without a result, for no rows
+     * @param username the username used to login to the database
+     * @param password the password used to login to the database
+     * @param dbName the name of the database (schema) to use
+     * @return rows, which must be closed (best with try-with-resources), if not read until the end
+     * @throws ch.vorburger.exec.ManagedProcessException if the query failed
+     */
+    public Stream<String[]> query(String sql, String username, String password, String dbName)
+            throws ManagedProcessException {
+        logger.info("Running a query: " + sql);
+        if (configuration.isRunningScriptsViaJdbc()) {
+            try {
+                return getJdbcScriptRunner().query(sql, username, password, dbName);
+            } catch (SQLException | RuntimeException e) {
+                throw new ManagedProcessException(
+                        "An error occurred while running a query: " + sql, e);
+            }
+        }
+        List<String> commandLine = getClientCommandLine(username, password, dbName);
+        commandLine.add("--xml");
+        ClientQueryResult rows =
+                new ClientQueryResult(
+                        commandLine,
+                        baseDir,
+                        JdbcScriptRunner.getScriptCharset(configuration),
+                        sql);
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(rows::close);
+    }
+
+    private List<String> getClientCommandLine(String username, String password, String dbName) {
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(configuration.getExecutable(Client).getAbsolutePath());
+        commandLine.add("--default-character-set=utf8");
+        if (username != null && !username.isEmpty()) {
+            commandLine.add("--user=" + username);
+        }
+        if (password != null && !password.isEmpty()) {
+            commandLine.add("--password=" + password);
+        }
+        if (dbName != null && !dbName.isEmpty()) {
+            commandLine.add("--database=" + dbName);
+        }
+        if (!configuration.isWindows()) {
+            commandLine.add("--socket=" + getAbsoluteSocketFile());
+        } else {
+            commandLine.add("--port=" + configuration.getPort());
+        }
+        if (configuration.getDefaultCharacterSet() != null) {
+            commandLine.add("--default-character-set=" + configuration.getDefaultCharacterSet());
+        }
+        return commandLine;
+    }
+
     protected void run(
             String logInfoText,
             InputStream fromIS,
@@ -479,6 +1366,38 @@ public class DB {
             boolean force)
             throws ManagedProcessException {
         logger.info("Running a " + logInfoText);
+        if (configuration.isRunningScriptsViaJdbc()) {
+            try {
+                getJdbcScriptRunner().run(fromIS, username, password, dbName, force);
+            } catch (IOException | SQLException | RuntimeException e) {
+                throw new ManagedProcessException(
+                        "An error occurred while running a " + logInfoText, e);
+            }
+            logger.info("Successfully ran the " + logInfoText);
+            return;
+        }
+        runClient(
+                logInfoText,
+                builder -> {
+                    if (fromIS != null) {
+                        builder.setInputStream(fromIS);
+                    }
+                },
+                username,
+                password,
+                dbName,
+                force);
+        logger.info("Successfully ran the " + logInfoText);
+    }
+
+    private void runClient(
+            String logInfoText,
+            Consumer<ManagedProcessBuilder> input,
+            String username,
+            String password,
+            String dbName,
+            boolean force)
+            throws ManagedProcessException {
         try {
             ManagedProcessBuilder builder =
                     new ManagedProcessBuilder(configuration.getExecutable(Client));
@@ -498,9 +1417,7 @@ public class DB {
                 builder.addArgument("-f");
             }
             addSocketOrPortArgument(builder);
-            if (fromIS != null) {
-                builder.setInputStream(fromIS);
-            }
+            input.accept(builder);
             if (configuration.getProcessListener() != null) {
                 builder.setProcessListener(configuration.getProcessListener());
             }
@@ -516,7 +1433,6 @@ public class DB {
             throw new ManagedProcessException(
                     "An error occurred while running a " + logInfoText, e);
         }
-        logger.info("Successfully ran the " + logInfoText);
     }
 
     /**
@@ -526,6 +1442,7 @@ public class DB {
      * @throws ch.vorburger.exec.ManagedProcessException if any.
      */
     public void createDB(String dbName) throws ManagedProcessException {
+        forgetSourcedScriptsOfMissingDBs(List.of(dbName));
         this.run("create database if not exists `" + dbName + "`;");
     }
 
@@ -539,9 +1456,84 @@ public class DB {
      */
     public void createDB(String dbName, String username, String password)
             throws ManagedProcessException {
+        forgetSourcedScriptsOfMissingDBs(List.of(dbName));
         this.run("create database if not exists `" + dbName + "`;", username, password);
     }
 
+    /**
+     * Creates several databases at once, with a single mysql command line client (or JDBC script,
+     * see {@link DBConfiguration#isRunningScriptsViaJdbc()}), instead of one per database like
+     * {@link #createDB(String)}. Databases which already exist are left as they are.
+     *
+     * @param dbNames names of the databases to create
+     * @param charset character set of the databases, or null for the DB's default
+     * @param collation collation of the databases, or null for the default of their character set
+     * @throws ch.vorburger.exec.ManagedProcessException if creating a database failed
+     */
+    public void createDBs(Collection<String> dbNames, String charset, String collation)
+            throws ManagedProcessException {
+        StringBuilder options = new StringBuilder();
+        if (charset != null) {
+            options.append(" character set ").append(checkName(charset));
+        }
+        if (collation != null) {
+            options.append(" collate ").append(checkName(collation));
+        }
+        StringBuilder command = new StringBuilder();
+        for (String dbName : dbNames) {
+            command.append("create database if not exists ")
+                    .append(quoteName(dbName))
+                    .append(options)
+                    .append(";\n");
+        }
+        forgetSourcedScriptsOfMissingDBs(dbNames);
+        runForDBs("Creating", dbNames, command);
+    }
+
+    /**
+     * Drops several databases at once, see {@link #createDBs(Collection, String, String)}.
+     * Databases which do not exist are ignored.
+     *
+     * @param dbNames names of the databases to drop
+     * @throws ch.vorburger.exec.ManagedProcessException if dropping a database failed
+     */
+    public void dropDBs(Collection<String> dbNames) throws ManagedProcessException {
+        StringBuilder command = new StringBuilder();
+        for (String dbName : dbNames) {
+            command.append("drop database if exists ").append(quoteName(dbName)).append(";\n");
+        }
+        runForDBs("Dropping", dbNames, command);
+        forgetSourcedScripts(dbNames);
+    }
+
+    private void runForDBs(String action, Collection<String> dbNames, CharSequence command)
+            throws ManagedProcessException {
+        if (dbNames.isEmpty()) {
+            return;
+        }
+        logger.info("{} {} databases: {}", action, dbNames.size(), dbNames);
+        // Not verbose, because the names were just logged, and could be hundreds
+        run(command.toString(), null, null, null, false, false);
+    }
+
+    private static String quoteName(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    private static String checkName(String name) {
+        if (!name.matches("[A-Za-z0-9_]+")) {
+            throw new IllegalArgumentException("Not a character set or collation name: " + name);
+        }
+        return name;
+    }
+
+    private synchronized JdbcScriptRunner getJdbcScriptRunner() {
+        if (jdbcScriptRunner == null) {
+            jdbcScriptRunner = new JdbcScriptRunner(configuration);
+        }
+        return jdbcScriptRunner;
+    }
+
     protected OutputStreamLogDispatcher getOutputStreamLogDispatcher(
             @SuppressWarnings("unused") String exec) {
         return new MariaDBOutputStreamLogDispatcher();
@@ -553,6 +1545,10 @@ public class DB {
      * @throws ch.vorburger.exec.ManagedProcessException if something fatal went wrong
      */
     public synchronized void stop() throws ManagedProcessException {
+        for (DBSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
         if (mysqldProcess != null && mysqldProcess.isAlive()) {
             logger.debug("Stopping the database...");
             if (configuration.isWindows()) {
@@ -564,6 +1560,39 @@ public class DB {
         } else {
             logger.debug("Database was already stopped.");
         }
+        PortReservation portReservation = getPortReservation();
+        if (portReservation != null) {
+            portReservation.release();
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #stop()}.
+     *
+     * @return future which completes with this DB once it is stopped, or exceptionally with a
+     *     {@link ManagedProcessException} if something fatal went wrong
+     */
+    public CompletableFuture<DB> stopAsync() {
+        return stopAsync(defaultAsyncExecutor);
+    }
+
+    /**
+     * Asynchronous variant of {@link #stop()}.
+     *
+     * @param executor Executor to stop on
+     * @return future which completes with this DB once it is stopped
+     */
+    public CompletableFuture<DB> stopAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        stop();
+                        return this;
+                    } catch (ManagedProcessException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                executor);
     }
 
     /**
@@ -612,20 +1641,45 @@ public class DB {
         }
 
         try {
-            Util.extractFromClasspathToFile(configuration.getBinariesClassPathLocation(), baseDir);
-            if (!configuration.isWindows()) {
-                Util.forceExecutable(configuration.getExecutable(PrintDefaults));
-                Util.forceExecutable(configuration.getExecutable(InstallDB));
-                Util.forceExecutable(configuration.getExecutable(Server));
-                Util.forceExecutable(configuration.getExecutable(Dump));
-                Util.forceExecutable(configuration.getExecutable(Client));
-                Util.forceExecutable(configuration.getExecutable(Admin));
+            String fingerprint =
+                    BinariesManifest.fingerprint(configuration.getBinariesClassPathLocation());
+            if (configuration.isUsingSharedBinariesCache()) {
+                if (!BinariesCache.populate(baseDir, () -> extractEmbeddedDb(fingerprint))) {
+                    logger.info("Using embedded DB already unpacked in shared cache: {}", baseDir);
+                }
+            } else if (BinariesManifest.isValid(baseDir, fingerprint)) {
+                logger.info(
+                        "Using embedded DB already unpacked (as per its manifest): {}", baseDir);
+            } else {
+                extractEmbeddedDb(fingerprint);
             }
         } catch (IOException e) {
             throw new RuntimeException("Error unpacking embedded DB", e);
         }
     }
 
+    private void extractEmbeddedDb(String fingerprint) throws IOException {
+        Map<String, Long> files = new ConcurrentHashMap<>();
+        Util.extractFromClasspathToFile(
+                configuration.getBinariesClassPathLocation(),
+                baseDir,
+                configuration.getUnpackingThreads(),
+                files);
+        // Extracting from a JAR keeps the permissions of its entries, but not every JAR has them
+        // (e.g. scripts/mariadb-install-db is 0644 in the 11.4.5 one, and JARs built by Maven
+        // usually have none at all), and extracting from exploded directories or nested JARs
+        // (see Util.extractFromClasspathToFile) never keeps any, so this is still needed.
+        if (!configuration.isWindows()) {
+            Util.forceExecutable(configuration.getExecutable(PrintDefaults));
+            Util.forceExecutable(configuration.getExecutable(InstallDB));
+            Util.forceExecutable(configuration.getExecutable(Server));
+            Util.forceExecutable(configuration.getExecutable(Dump));
+            Util.forceExecutable(configuration.getExecutable(Client));
+            Util.forceExecutable(configuration.getExecutable(Admin));
+        }
+        bytesUnpacked = BinariesManifest.write(baseDir, fingerprint, files);
+    }
+
     /**
      * If the data directory specified in the configuration is a temporary directory, this deletes
      * any previous version. It also makes sure that the directory exists.
@@ -638,7 +1692,7 @@ public class DB {
         tmpDir = Util.getDirectory(configuration.getTmpDir());
         try {
             File dataDirPath = configuration.getDataDir();
-            if (Util.isTemporaryDirectory(dataDirPath)) {
+            if (Util.isTemporaryDirectory(dataDirPath, configuration)) {
                 FileUtils.deleteDirectory(dataDirPath);
             }
             dataDir = Util.getDirectory(dataDirPath);
@@ -648,9 +1702,20 @@ public class DB {
         }
     }
 
+    /**
+     * Sets whether {@link #start()} registers {@link #cleanupOnExit()}. This is for DBs which are
+     * cleaned up by their owner instead, like those of a {@link DBPool}.
+     *
+     * @param isCleaningUpOnExit false to not register the shutdown hook
+     */
+    void setCleaningUpOnExit(boolean isCleaningUpOnExit) {
+        this.isCleaningUpOnExit = isCleaningUpOnExit;
+    }
+
     /**
      * Adds a shutdown hook to ensure that when the JVM exits, the database is stopped, and any
-     * temporary data directories are cleaned up.
+     * temporary data directories are cleaned up. This is called only once per DB, on the first
+     * start.
      */
     protected void cleanupOnExit() {
         String threadName = "Shutdown Hook Deletion Thread for Temporary DB " + dataDir.toString();
@@ -723,7 +1788,9 @@ public class DB {
                 new BufferedOutputStream(new FileOutputStream(outputFile));
         builder.addStdOut(outputStream);
         builder.setOutputStreamLogDispatcher(getOutputStreamLogDispatcher("mysqldump"));
-        builder.addArgument("--port=" + configuration.getPort());
+        if (!configuration.isSocketOnly()) {
+            builder.addArgument("--port=" + configuration.getPort());
+        }
         if (!configuration.isWindows()) {
             builder.addFileArgument("--socket", getAbsoluteSocketFile());
         }
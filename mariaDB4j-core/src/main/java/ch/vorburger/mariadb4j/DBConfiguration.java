@@ -36,12 +36,23 @@ import java.util.function.Supplier;
 public interface DBConfiguration {
 
     /**
-     * TCP Port to start DB server on.
+     * TCP Port to start DB server on. If it was reserved from a {@link
+     * DBConfigurationBuilder#setPortRange(int, int) range}, this can change on {@link DB#start()}.
      *
-     * @return returns port value
+     * @return returns port value, or 0 in {@link #isSocketOnly()} mode
      */
     int getPort();
 
+    /**
+     * Whether the DB server listens only on its UNIX socket, and not on a TCP port, see {@link
+     * DBConfigurationBuilder#setSocketOnly(boolean)}.
+     *
+     * @return returns true if there is no TCP port
+     */
+    default boolean isSocketOnly() {
+        return false;
+    }
+
     /**
      * UNIX Socket to start DB server on (ignored on Windows).
      *
@@ -93,6 +104,136 @@ public interface DBConfiguration {
      */
     boolean isDeletingTemporaryBaseAndDataDirsOnShutdown();
 
+    /**
+     * Whether the base directory is an entry of the machine-wide shared binaries cache. If so, it
+     * is populated at most once (by whichever process gets there first), and never deleted.
+     *
+     * @return returns value of isUsingSharedBinariesCache
+     */
+    default boolean isUsingSharedBinariesCache() {
+        return false;
+    }
+
+    /**
+     * How many threads to use to unpack the DB binaries from the classpath.
+     *
+     * @return returns 1 to unpack sequentially, or more to unpack in parallel
+     */
+    default int getUnpackingThreads() {
+        return 1;
+    }
+
+    /**
+     * Whether new data directories are copied from a machine-wide cache of installed templates,
+     * instead of running the install script for each of them.
+     *
+     * @return returns value of isUsingDataDirTemplateCache
+     */
+    default boolean isUsingDataDirTemplateCache() {
+        return false;
+    }
+
+    /**
+     * Root directory of the data directory template cache.
+     *
+     * @return returns data directory template cache directory value
+     */
+    default File getDataDirTemplateCacheDir() {
+        return null;
+    }
+
+    /**
+     * Whether to install new data directories with "mariadbd --bootstrap" instead of the install
+     * script.
+     *
+     * @return returns value of isInstallingViaBootstrap
+     */
+    default boolean isInstallingViaBootstrap() {
+        return false;
+    }
+
+    /**
+     * Whether to skip the help tables, the sys schema and the test database when installing via
+     * bootstrap.
+     *
+     * @return returns value of isInstallingMinimalSystemTables
+     */
+    default boolean isInstallingMinimalSystemTables() {
+        return false;
+    }
+
+    /**
+     * Whether to detect readiness of the started DB via a protocol handshake, instead of via its
+     * console output.
+     *
+     * @return returns value of isUsingProtocolReadinessProbe
+     */
+    default boolean isUsingProtocolReadinessProbe() {
+        return false;
+    }
+
+    /**
+     * Whether to run scripts over JDBC connections instead of via the mysql command line client.
+     *
+     * @return returns value of isRunningScriptsViaJdbc
+     */
+    default boolean isRunningScriptsViaJdbc() {
+        return false;
+    }
+
+    /**
+     * Whether to skip sourcing scripts which were already sourced into the same database before.
+     *
+     * @return returns value of isSkippingUnchangedScripts
+     */
+    default boolean isSkippingUnchangedScripts() {
+        return false;
+    }
+
+    /**
+     * Set of options with which the DB server is started, on top of (and before) {@link
+     * #getArgs()}.
+     *
+     * @return returns performance profile value
+     */
+    default Profile getPerformanceProfile() {
+        return Profile.DURABLE;
+    }
+
+    /**
+     * Approximate amount of memory which the caches, buffers and connections of the DB server
+     * should use at most, on top of what it needs regardless. These are sized to fit into this,
+     * overriding its {@link #getPerformanceProfile()}.
+     *
+     * @return returns the memory budget in bytes, or 0 if there is none
+     */
+    default long getMemoryBudget() {
+        return 0;
+    }
+
+    /**
+     * For how many DB server instances (which share the container which this runs in) to size the
+     * memory and threads of the DB server, see {@link
+     * DBConfigurationBuilder#setAutoSizingInstances(int)}.
+     *
+     * @return returns the number of instances, or 0 to not size automatically
+     */
+    default int getAutoSizingInstances() {
+        return 0;
+    }
+
+    /**
+     * Directory on a RAM disk under which the data and tmp directories and the socket are, see
+     * {@link DBConfigurationBuilder#setDataOnRamDisk(boolean)}. Like the system temporary
+     * directory, everything below it is deleted on shutdown.
+     *
+     * @return returns the directory, or null if the data is not on a RAM disk (also when it fell
+     *     back to disk)
+     */
+    default File getRamDiskDir() {
+        return null;
+    }
+
     /**
      * Whether running on Windows (some start-up parameters are different).
      *
@@ -111,6 +252,15 @@ public interface DBConfiguration {
      */
     ManagedProcessListener getProcessListener();
 
+    /**
+     * Returns the listener notified about the phases of creating and starting the DB.
+     *
+     * @return listener, or null if none was set
+     */
+    default DBLifecycleListener getLifecycleListener() {
+        return null;
+    }
+
     /**
      * Whether to to "--skip-grant-tables".
      *
@@ -133,6 +283,62 @@ public interface DBConfiguration {
         Admin
     }
 
+    /**
+     * Sets of DB server options which tune it for a purpose. The options are valid for all the DB
+     * versions which MariaDB4j ships, and any of them can still be overridden with {@link
+     * DBConfigurationBuilder#addArg(String)}.
+     */
+    enum Profile {
+        /**
+         * For throwaway DBs, e.g. in tests: Much faster writes, because commits are not flushed to
+         * disk, pages are not written twice, and a larger redo log needs fewer checkpoints while
+         * loading lots of data, at the price that a crash of the DB server (or of the machine) may
+         * lose recent transactions or even corrupt the data.
+         */
+        FAST_EPHEMERAL(
+                "--innodb_flush_log_at_trx_commit=0",
+                // Instead of 96M; the server resizes the redo log of an existing data dir on start
+                "--innodb_log_file_size=256M",
+                "--innodb_doublewrite=0",
+                "--skip-log-bin",
+                "--sync_binlog=0",
+                "--innodb_stats_persistent=0",
+                "--innodb_buffer_pool_dump_at_shutdown=0",
+                "--innodb_buffer_pool_load_at_startup=0",
+                "--innodb_fast_shutdown=2",
+                "--performance_schema=OFF"),
+
+        /**
+         * For many DBs on a small machine or container: Small caches and buffers, instead of e.g. a
+         * 128 MB InnoDB buffer pool, at the price of more disk I/O. The redo log is small as well,
+         * because on a {@link DBConfigurationBuilder#setRamDiskDir(java.io.File) RAM disk} it takes
+         * memory, too.
+         */
+        LOW_MEMORY(
+                "--innodb_buffer_pool_size=16M",
+                "--innodb_log_buffer_size=2M",
+                "--innodb_log_file_size=16M",
+                "--key_buffer_size=1M",
+                "--aria_pagecache_buffer_size=1M",
+                "--table_open_cache=64",
+                "--table_definition_cache=400",
+                "--performance_schema=OFF"),
+
+        /** The DB server's own production safe defaults. This is the default. */
+        DURABLE();
+
+        @SuppressWarnings("ImmutableEnumChecker") // List.of() is unmodifiable
+        private final List<String> args;
+
+        Profile(String... args) {
+            this.args = List.of(args);
+        }
+
+        List<String> getArgs() {
+            return args;
+        }
+    }
+
     class Impl implements DBConfiguration {
 
         private final int port;
@@ -143,56 +349,89 @@ public interface DBConfiguration {
         private final File dataDir;
         private final File tmpDir;
         private final boolean isDeletingTemporaryBaseAndDataDirsOnShutdown;
+        private final boolean isUsingSharedBinariesCache;
+        private final int unpackingThreads;
+        private final boolean isUsingDataDirTemplateCache;
+        private final File dataDirTemplateCacheDir;
+        private final boolean isInstallingViaBootstrap;
+        private final boolean isInstallingMinimalSystemTables;
+        private final boolean isUsingProtocolReadinessProbe;
+        private final boolean isRunningScriptsViaJdbc;
+        private final boolean isSkippingUnchangedScripts;
+        private final Profile performanceProfile;
+        private final long memoryBudget;
+        private final int autoSizingInstances;
+        private final File ramDiskDir;
+        private final PortReservation portReservation;
+        private final boolean isSocketOnly;
         private final boolean isWindows;
         private final List<String> args;
         private final String osLibraryEnvironmentVarName;
         private final String defaultCharacterSet;
         private final ManagedProcessListener listener;
+        private final DBLifecycleListener lifecycleListener;
         private final boolean isSecurityDisabled;
         private final Function<String, String> getURL;
 
         @SuppressWarnings("ImmutableMemberCollection")
         private final Map<Executable, Supplier<File>> executables;
 
-        Impl(
-                int port,
-                String socket,
-                String binariesClassPathLocation,
-                File baseDir,
-                File libDir,
-                File dataDir,
-                File tmpDir,
-                boolean isWindows,
-                List<String> args,
-                String osLibraryEnvironmentVarName,
-                boolean isSecurityDisabled,
-                boolean isDeletingTemporaryBaseAndDataDirsOnShutdown,
-                Function<String, String> getURL,
-                String defaultCharacterSet,
-                Map<Executable, Supplier<File>> executables,
-                ManagedProcessListener listener) {
-            this.port = port;
-            this.socket = socket;
-            this.binariesClassPathLocation = binariesClassPathLocation;
-            this.baseDir = baseDir;
-            this.libDir = libDir;
-            this.dataDir = dataDir;
-            this.tmpDir = tmpDir;
+        Impl(DBConfigurationBuilder builder) {
+            // The port first, because the default socket and directories are named after it (or
+            // after the PID, if the port is reserved from a range)
+            this.port = builder._getPort();
+            this.portReservation = builder.getPortReservation();
+            this.isSocketOnly = builder.isSocketOnly();
+            this.socket = builder._getSocket();
+            this.binariesClassPathLocation = builder._getBinariesClassPathLocation();
+            this.baseDir = builder.getBaseDir();
+            this.libDir = builder.getLibDir();
+            this.dataDir = builder._getDataDir();
+            this.tmpDir = builder._getTmpDir();
+            this.isWindows = builder.isWindows();
+            this.args = builder._getArgs();
+            this.osLibraryEnvironmentVarName = builder._getOSLibraryEnvironmentVarName();
+            this.isSecurityDisabled = builder.isSecurityDisabled();
             this.isDeletingTemporaryBaseAndDataDirsOnShutdown =
-                    isDeletingTemporaryBaseAndDataDirsOnShutdown;
-            this.isWindows = isWindows;
-            this.args = args;
-            this.osLibraryEnvironmentVarName = osLibraryEnvironmentVarName;
-            this.isSecurityDisabled = isSecurityDisabled;
-            this.getURL = getURL;
-            this.defaultCharacterSet = defaultCharacterSet;
-            this.listener = listener;
-            this.executables = Map.copyOf(executables);
+                    builder.isDeletingTemporaryBaseAndDataDirsOnShutdown();
+            this.isUsingSharedBinariesCache =
+                    builder.isUsingSharedBinariesCache() && builder.isUnpackingFromClasspath();
+            this.unpackingThreads = builder.getUnpackingThreads();
+            this.isUsingDataDirTemplateCache = builder.isUsingDataDirTemplateCache();
+            this.dataDirTemplateCacheDir = builder.getDataDirTemplateCacheDir();
+            this.isInstallingViaBootstrap = builder.isInstallingViaBootstrap();
+            this.isInstallingMinimalSystemTables = builder.isInstallingMinimalSystemTables();
+            this.isUsingProtocolReadinessProbe = builder.isUsingProtocolReadinessProbe();
+            this.isRunningScriptsViaJdbc = builder.isRunningScriptsViaJdbc();
+            this.isSkippingUnchangedScripts = builder.isSkippingUnchangedScripts();
+            this.performanceProfile = builder.getPerformanceProfile();
+            this.memoryBudget = builder.getMemoryBudget();
+            this.autoSizingInstances = builder.getAutoSizingInstances();
+            this.ramDiskDir = builder.getRamDiskRoot();
+            this.getURL = builder::getURL;
+            this.defaultCharacterSet = builder.getDefaultCharacterSet();
+            this.executables = Map.copyOf(builder._getExecutables());
+            this.listener = builder.getProcessListener();
+            this.lifecycleListener = builder.getLifecycleListener();
         }
 
         @Override
         public int getPort() {
-            return port;
+            return portReservation != null ? portReservation.getPort() : port;
+        }
+
+        /**
+         * Reservation of the port, see {@link DBConfigurationBuilder#setPortRange(int, int)}.
+         *
+         * @return the reservation, or null if the port was not reserved from a range
+         */
+        PortReservation getPortReservation() {
+            return portReservation;
+        }
+
+        @Override
+        public boolean isSocketOnly() {
+            return isSocketOnly;
         }
 
         @Override
@@ -230,6 +469,71 @@ public interface DBConfiguration {
             return isDeletingTemporaryBaseAndDataDirsOnShutdown;
         }
 
+        @Override
+        public boolean isUsingSharedBinariesCache() {
+            return isUsingSharedBinariesCache;
+        }
+
+        @Override
+        public int getUnpackingThreads() {
+            return unpackingThreads;
+        }
+
+        @Override
+        public boolean isUsingDataDirTemplateCache() {
+            return isUsingDataDirTemplateCache;
+        }
+
+        @Override
+        public File getDataDirTemplateCacheDir() {
+            return dataDirTemplateCacheDir;
+        }
+
+        @Override
+        public boolean isInstallingViaBootstrap() {
+            return isInstallingViaBootstrap;
+        }
+
+        @Override
+        public boolean isInstallingMinimalSystemTables() {
+            return isInstallingMinimalSystemTables;
+        }
+
+        @Override
+        public boolean isUsingProtocolReadinessProbe() {
+            return isUsingProtocolReadinessProbe;
+        }
+
+        @Override
+        public boolean isRunningScriptsViaJdbc() {
+            return isRunningScriptsViaJdbc;
+        }
+
+        @Override
+        public boolean isSkippingUnchangedScripts() {
+            return isSkippingUnchangedScripts;
+        }
+
+        @Override
+        public Profile getPerformanceProfile() {
+            return performanceProfile;
+        }
+
+        @Override
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        @Override
+        public int getAutoSizingInstances() {
+            return autoSizingInstances;
+        }
+
+        @Override
+        public File getRamDiskDir() {
+            return ramDiskDir;
+        }
+
         @Override
         public boolean isWindows() {
             return isWindows;
@@ -260,6 +564,11 @@ public interface DBConfiguration {
             return listener;
         }
 
+        @Override
+        public DBLifecycleListener getLifecycleListener() {
+            return lifecycleListener;
+        }
+
         @Override
         public String getDefaultCharacterSet() {
             return defaultCharacterSet;
@@ -30,8 +30,11 @@ import static java.util.Objects.requireNonNull;
 
 import ch.vorburger.exec.ManagedProcessListener;
 import ch.vorburger.mariadb4j.DBConfiguration.Executable;
+import ch.vorburger.mariadb4j.DBConfiguration.Profile;
 
 import org.apache.commons.lang3.SystemUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -40,6 +43,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
@@ -59,10 +63,14 @@ public class DBConfigurationBuilder {
     protected static final String LINUX = "linux";
     protected static final String OSX = "osx";
 
+    private static final Logger logger = LoggerFactory.getLogger(DBConfigurationBuilder.class);
+
     private static final String DEFAULT_DATA_DIR = "/data";
 
     private static final String DEFAULT_TMP_DIR = "/tmp";
 
+    private static final AtomicInteger instanceCounter = new AtomicInteger();
+
     private String databaseVersion = null;
 
     // All of the following are just the defaults, which can be overridden
@@ -79,13 +87,39 @@ public class DBConfigurationBuilder {
     protected File tmpDir = new File(SystemUtils.JAVA_IO_TMPDIR + DEFAULT_TMP_DIR);
     protected String socket = null; // see _getSocket()
     protected int port = 0;
+    protected int portRangeFrom = 0;
+    protected int portRangeTo = 0;
+    protected File portLockDir = new File(SystemUtils.JAVA_IO_TMPDIR + "/MariaDB4j/ports");
+    protected boolean isSocketOnly = false;
     protected boolean isDeletingTemporaryBaseAndDataDirsOnShutdown = true;
     protected boolean isUnpackingFromClasspath = true;
+    protected int unpackingThreads = 1;
+    protected boolean isUsingSharedBinariesCache = false;
+    protected File sharedBinariesCacheDir =
+            new File(SystemUtils.JAVA_IO_TMPDIR + "/MariaDB4j/cache");
+    protected boolean isUsingDataDirTemplateCache = false;
+    protected File dataDirTemplateCacheDir =
+            new File(SystemUtils.JAVA_IO_TMPDIR + "/MariaDB4j/templates");
+    protected boolean isInstallingViaBootstrap = false;
+    protected boolean isInstallingMinimalSystemTables = false;
+    protected boolean isUsingProtocolReadinessProbe = false;
+    protected boolean isRunningScriptsViaJdbc = false;
+    protected boolean isSkippingUnchangedScripts = false;
+    protected Profile performanceProfile = Profile.DURABLE;
+    protected long memoryBudget = 0;
+    protected int autoSizingInstances = 0;
+    protected boolean isDataOnRamDisk = false;
+    protected File ramDiskDir = new File("/dev/shm");
+    protected long ramDiskMinFreeSpace = 512L * 1024 * 1024;
     protected List<String> args = new ArrayList<>();
     private boolean isSecurityDisabled = true;
 
     private boolean frozen = false;
+    private File ramDiskRoot = null; // see build()
+    private PortReservation portReservation = null; // see _getPort()
+    private String uniqueInstanceName = null; // see _getInstanceName()
     private ManagedProcessListener listener;
+    private DBLifecycleListener lifecycleListener;
 
     protected String defaultCharacterSet = null;
     protected Map<Executable, Supplier<File>> executables = new HashMap<>();
@@ -104,13 +138,34 @@ public class DBConfigurationBuilder {
         builder.tmpDir = cloneFrom.tmpDir;
         builder.socket = cloneFrom.socket;
         builder.port = cloneFrom.port;
+        builder.portRangeFrom = cloneFrom.portRangeFrom;
+        builder.portRangeTo = cloneFrom.portRangeTo;
+        builder.portLockDir = cloneFrom.portLockDir;
+        builder.isSocketOnly = cloneFrom.isSocketOnly;
         builder.isDeletingTemporaryBaseAndDataDirsOnShutdown =
                 cloneFrom.isDeletingTemporaryBaseAndDataDirsOnShutdown;
         builder.isUnpackingFromClasspath = cloneFrom.isUnpackingFromClasspath;
+        builder.unpackingThreads = cloneFrom.unpackingThreads;
+        builder.isUsingSharedBinariesCache = cloneFrom.isUsingSharedBinariesCache;
+        builder.sharedBinariesCacheDir = cloneFrom.sharedBinariesCacheDir;
+        builder.isUsingDataDirTemplateCache = cloneFrom.isUsingDataDirTemplateCache;
+        builder.dataDirTemplateCacheDir = cloneFrom.dataDirTemplateCacheDir;
+        builder.isInstallingViaBootstrap = cloneFrom.isInstallingViaBootstrap;
+        builder.isInstallingMinimalSystemTables = cloneFrom.isInstallingMinimalSystemTables;
+        builder.isUsingProtocolReadinessProbe = cloneFrom.isUsingProtocolReadinessProbe;
+        builder.isRunningScriptsViaJdbc = cloneFrom.isRunningScriptsViaJdbc;
+        builder.isSkippingUnchangedScripts = cloneFrom.isSkippingUnchangedScripts;
+        builder.performanceProfile = cloneFrom.performanceProfile;
+        builder.memoryBudget = cloneFrom.memoryBudget;
+        builder.autoSizingInstances = cloneFrom.autoSizingInstances;
+        builder.isDataOnRamDisk = cloneFrom.isDataOnRamDisk;
+        builder.ramDiskDir = cloneFrom.ramDiskDir;
+        builder.ramDiskMinFreeSpace = cloneFrom.ramDiskMinFreeSpace;
         builder.args = new ArrayList<>(cloneFrom.args);
         builder.isSecurityDisabled = cloneFrom.isSecurityDisabled;
         builder.frozen = cloneFrom.frozen;
         builder.listener = cloneFrom.listener;
+        builder.lifecycleListener = cloneFrom.lifecycleListener;
         builder.defaultCharacterSet = cloneFrom.defaultCharacterSet;
         builder.executables = new HashMap<>(cloneFrom.executables);
         return builder;
@@ -179,13 +234,14 @@ public class DBConfigurationBuilder {
     }
 
     public int getPort() {
-        return port;
+        return portReservation != null ? portReservation.getPort() : port;
     }
 
     /**
      * Sets the port number.
      *
-     * @param port port number, or 0 to use detectFreePort()
+     * @param port port number, or 0 to use detectFreePort() (or to reserve one, see {@link
+     *     #setPortRange(int, int)})
      * @return this
      */
     public DBConfigurationBuilder setPort(int port) {
@@ -209,6 +265,23 @@ public class DBConfigurationBuilder {
         return listener;
     }
 
+    /**
+     * Sets a listener which is notified whenever a phase of creating and starting the DB (like
+     * unpacking, installing or waiting for it to be ready) completed, with its duration.
+     *
+     * @param lifecycleListener custom listener
+     * @return this
+     */
+    public DBConfigurationBuilder setLifecycleListener(DBLifecycleListener lifecycleListener) {
+        checkIfFrozen("setLifecycleListener");
+        this.lifecycleListener = lifecycleListener;
+        return this;
+    }
+
+    public DBLifecycleListener getLifecycleListener() {
+        return lifecycleListener;
+    }
+
     public boolean isDeletingTemporaryBaseAndDataDirsOnShutdown() {
         return isDeletingTemporaryBaseAndDataDirsOnShutdown;
     }
@@ -251,29 +324,22 @@ public class DBConfigurationBuilder {
     }
 
     public DBConfiguration build() {
+        if (isSocketOnly && isWindows()) {
+            throw new IllegalStateException("Socket only mode is not supported on Windows");
+        }
         if (dataDir == null || tmpDir == null) {
             String p = SystemUtils.JAVA_IO_TMPDIR + "/" + path();
             this.baseDir = new File(p + "/base");
         }
+        if (isUsingSharedBinariesCache && isUnpackingFromClasspath) {
+            useSharedBinariesCache();
+        }
+        if (isDataOnRamDisk) {
+            ramDiskRoot = _getRamDiskRoot();
+        }
 
         frozen = true;
-        return new DBConfiguration.Impl(
-                _getPort(),
-                _getSocket(),
-                _getBinariesClassPathLocation(),
-                getBaseDir(),
-                getLibDir(),
-                _getDataDir(),
-                _getTmpDir(),
-                isWindows(),
-                _getArgs(),
-                _getOSLibraryEnvironmentVarName(),
-                isSecurityDisabled(),
-                isDeletingTemporaryBaseAndDataDirsOnShutdown(),
-                this::getURL,
-                getDefaultCharacterSet(),
-                _getExecutables(),
-                getProcessListener());
+        return new DBConfiguration.Impl(this);
     }
 
     /**
@@ -302,11 +368,11 @@ public class DBConfigurationBuilder {
         if (isNull(getDataDir())
                 || getDataDir().equals(new File(SystemUtils.JAVA_IO_TMPDIR, DEFAULT_DATA_DIR))) {
             return new File(
-                    SystemUtils.JAVA_IO_TMPDIR
+                    _getTemporaryRoot()
                             + File.separator
                             + DEFAULT_DATA_DIR
                             + File.separator
-                            + _getPort());
+                            + _getInstanceName());
         }
         return getDataDir();
     }
@@ -315,23 +381,49 @@ public class DBConfigurationBuilder {
         if (isNull(getTmpDir())
                 || getTmpDir().equals(new File(SystemUtils.JAVA_IO_TMPDIR, DEFAULT_TMP_DIR))) {
             return new File(
-                    SystemUtils.JAVA_IO_TMPDIR
+                    _getTemporaryRoot()
                             + File.separator
                             + DEFAULT_TMP_DIR
                             + File.separator
-                            + getPort());
+                            + _getInstanceName());
         }
         return getTmpDir();
     }
 
+    /**
+     * Reservation of the port, see {@link #setPortRange(int, int)}.
+     *
+     * @return the reservation, or null if the port was not reserved (yet)
+     */
+    PortReservation getPortReservation() {
+        return portReservation;
+    }
+
+    /**
+     * RAM disk root which {@link #build()} determined, see {@link #setDataOnRamDisk(boolean)}.
+     *
+     * @return the directory, or null if the data is not on a RAM disk
+     */
+    File getRamDiskRoot() {
+        return ramDiskRoot;
+    }
+
     protected boolean isNull(File file) {
         return file == null;
     }
 
     protected int _getPort() {
+        if (isSocketOnly) {
+            return 0;
+        }
         int port = getPort();
         if (port == 0) {
-            port = detectFreePort();
+            if (portRangeFrom != 0) {
+                portReservation = new PortReservation(getPortLockDir(), portRangeFrom, portRangeTo);
+                port = portReservation.getPort();
+            } else {
+                port = detectFreePort();
+            }
         }
         return port;
     }
@@ -339,14 +431,74 @@ public class DBConfigurationBuilder {
     protected String _getSocket() {
         String socket = getSocket();
         if (socket == null) {
-            String portStr = String.valueOf(getPort());
             // Use /tmp instead getBaseDir() here, else we too easily hit
             // the "mysqld ERROR The socket file path is too long (> 107)" issue
-            socket = SystemUtils.JAVA_IO_TMPDIR + "/MariaDB4j." + portStr + ".sock";
+            socket = _getTemporaryRoot() + "/MariaDB4j." + _getInstanceName() + ".sock";
         }
         return socket;
     }
 
+    /**
+     * Name of the default data and tmp directories and of the socket, which distinguishes them from
+     * those of other DBs. This is the port, or if the port was reserved from a {@link
+     * #setPortRange(int, int) range} or in {@link #setSocketOnly(boolean) socket only} mode
+     * (without a port), the PID of this JVM and a counter. A reserved port is not used for the
+     * name, because the DB may move away from it, or release it on stop, and another DB could then
+     * reserve it while the directories are still in use.
+     */
+    protected String _getInstanceName() {
+        int port = _getPort();
+        if (!isSocketOnly && portReservation == null) {
+            return String.valueOf(port);
+        }
+        if (uniqueInstanceName == null) {
+            uniqueInstanceName =
+                    (isSocketOnly ? "s" : "r")
+                            + ProcessHandle.current().pid()
+                            + "-"
+                            + instanceCounter.incrementAndGet();
+        }
+        return uniqueInstanceName;
+    }
+
+    /**
+     * Directory under which the default data and tmp directories and the socket are, which is the
+     * RAM disk root if {@link #setDataOnRamDisk(boolean)} is used (and there was enough space),
+     * else the system temporary directory.
+     */
+    protected String _getTemporaryRoot() {
+        return ramDiskRoot != null ? ramDiskRoot.getPath() : SystemUtils.JAVA_IO_TMPDIR;
+    }
+
+    /**
+     * Checks whether the RAM disk directory can be used.
+     *
+     * @return the MariaDB4j directory on the RAM disk, or null to fall back to disk
+     */
+    protected File _getRamDiskRoot() {
+        File dir = getRamDiskDir();
+        if (!dir.isDirectory() || !dir.canWrite()) {
+            logger.warn(
+                    "RAM disk directory {} does not exist or is not writable, so keeping the data"
+                            + " on disk",
+                    dir);
+            return null;
+        }
+        long usableSpace = dir.getUsableSpace();
+        if (usableSpace < getRamDiskMinFreeSpace()) {
+            logger.warn(
+                    "RAM disk directory {} has only {} MB free, less than the required {} MB, so"
+                            + " keeping the data on disk",
+                    dir,
+                    usableSpace / 1024 / 1024,
+                    getRamDiskMinFreeSpace() / 1024 / 1024);
+            return null;
+        }
+        File root = new File(dir, "MariaDB4j");
+        logger.info("Putting the data on RAM disk directory {}", root);
+        return root;
+    }
+
     public String getDatabaseVersion() {
         return databaseVersion;
     }
@@ -416,7 +568,443 @@ public class DBConfigurationBuilder {
         return this;
     }
 
+    public int getUnpackingThreads() {
+        return unpackingThreads;
+    }
+
+    /**
+     * Sets how many threads to use to unpack the DB binaries from the classpath. With more than 1,
+     * the files are unpacked in parallel, largest first, which can be considerably faster on
+     * multi-core machines with fast disks; e.g. use {@code
+     * Runtime.getRuntime().availableProcessors()}.
+     *
+     * @param unpackingThreads Default value is 1, i.e. unpacking sequentially on the calling thread
+     * @return returns this
+     */
+    public DBConfigurationBuilder setUnpackingThreads(int unpackingThreads) {
+        checkIfFrozen("setUnpackingThreads");
+        if (unpackingThreads < 1) {
+            throw new IllegalArgumentException(
+                    "unpackingThreads must be at least 1, but is " + unpackingThreads);
+        }
+        this.unpackingThreads = unpackingThreads;
+        return this;
+    }
+
+    public boolean isUsingSharedBinariesCache() {
+        return isUsingSharedBinariesCache;
+    }
+
+    /**
+     * Whether to unpack the DB binaries from the classpath only once per machine, into a shared
+     * cache directory, instead of into the base directory of every new DB. If enabled, the base
+     * (and, unless explicitly set, lib) directory is a directory within {@link
+     * #getSharedBinariesCacheDir()} which is specific to the version and content of the binaries;
+     * it is never deleted on shutdown.
+     *
+     * @param isUsingSharedBinariesCache Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setUsingSharedBinariesCache(boolean isUsingSharedBinariesCache) {
+        checkIfFrozen("setUsingSharedBinariesCache");
+        this.isUsingSharedBinariesCache = isUsingSharedBinariesCache;
+        return this;
+    }
+
+    public File getSharedBinariesCacheDir() {
+        return sharedBinariesCacheDir;
+    }
+
+    /**
+     * Sets the root directory of the shared binaries cache, see {@link
+     * #setUsingSharedBinariesCache(boolean)}.
+     *
+     * @param sharedBinariesCacheDir Default value is "MariaDB4j/cache" in java.io.tmpdir
+     * @return returns this
+     */
+    public DBConfigurationBuilder setSharedBinariesCacheDir(File sharedBinariesCacheDir) {
+        checkIfFrozen("setSharedBinariesCacheDir");
+        this.sharedBinariesCacheDir =
+                requireNonNull(sharedBinariesCacheDir, "sharedBinariesCacheDir");
+        return this;
+    }
+
+    protected void useSharedBinariesCache() {
+        File cachedBaseDir;
+        try {
+            cachedBaseDir =
+                    BinariesCache.getEntryDir(
+                            getSharedBinariesCacheDir(), getBinariesClassPathLocation());
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "Could not determine shared binaries cache directory for "
+                            + getBinariesClassPathLocation(),
+                    e);
+        }
+        // Only move the libDir along if it was not explicitly set to something else
+        if (libDir == null || libDir.equals(new File(baseDir + "/libs"))) {
+            libDir = new File(cachedBaseDir + "/libs");
+        }
+        baseDir = cachedBaseDir;
+    }
+
+    public boolean isUsingDataDirTemplateCache() {
+        return isUsingDataDirTemplateCache;
+    }
+
+    /**
+     * Whether to install a new data directory only once per machine (for the given DB version,
+     * default character set and installation options, but whatever the arguments) into a template
+     * directory, and then create the data directory of every new DB by copying that template,
+     * instead of running the install script again each time.
+     *
+     * @param isUsingDataDirTemplateCache Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setUsingDataDirTemplateCache(
+            boolean isUsingDataDirTemplateCache) {
+        checkIfFrozen("setUsingDataDirTemplateCache");
+        this.isUsingDataDirTemplateCache = isUsingDataDirTemplateCache;
+        return this;
+    }
+
+    public File getDataDirTemplateCacheDir() {
+        return dataDirTemplateCacheDir;
+    }
+
+    /**
+     * Sets the root directory of the data directory template cache, see {@link
+     * #setUsingDataDirTemplateCache(boolean)}.
+     *
+     * @param dataDirTemplateCacheDir Default value is "MariaDB4j/templates" in java.io.tmpdir
+     * @return returns this
+     */
+    public DBConfigurationBuilder setDataDirTemplateCacheDir(File dataDirTemplateCacheDir) {
+        checkIfFrozen("setDataDirTemplateCacheDir");
+        this.dataDirTemplateCacheDir =
+                requireNonNull(dataDirTemplateCacheDir, "dataDirTemplateCacheDir");
+        return this;
+    }
+
+    public boolean isInstallingViaBootstrap() {
+        return isInstallingViaBootstrap;
+    }
+
+    /**
+     * Whether to install new data directories by directly feeding the bundled system tables SQL
+     * scripts into a single "mariadbd --bootstrap" process, instead of running the install script
+     * (which forks several helper processes). Ignored on Windows.
+     *
+     * @param isInstallingViaBootstrap Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setInstallingViaBootstrap(boolean isInstallingViaBootstrap) {
+        checkIfFrozen("setInstallingViaBootstrap");
+        this.isInstallingViaBootstrap = isInstallingViaBootstrap;
+        return this;
+    }
+
+    public boolean isInstallingMinimalSystemTables() {
+        return isInstallingMinimalSystemTables;
+    }
+
+    /**
+     * Whether to skip the help tables, the sys schema and the test database when installing via
+     * bootstrap (see {@link #setInstallingViaBootstrap(boolean)}). This makes installation faster
+     * and the data directory smaller, which is typically fine for tests.
+     *
+     * @param isInstallingMinimalSystemTables Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setInstallingMinimalSystemTables(
+            boolean isInstallingMinimalSystemTables) {
+        checkIfFrozen("setInstallingMinimalSystemTables");
+        this.isInstallingMinimalSystemTables = isInstallingMinimalSystemTables;
+        return this;
+    }
+
+    public boolean isUsingProtocolReadinessProbe() {
+        return isUsingProtocolReadinessProbe;
+    }
+
+    /**
+     * Whether {@link DB#start()} should detect that the DB is ready for connections by connecting
+     * to it (via its UNIX socket, or its TCP port on Windows) and reading the server's protocol
+     * handshake, instead of by waiting for the "ready for connections" message in its console
+     * output. This also makes start() fail as soon as the DB process exits.
+     *
+     * @param isUsingProtocolReadinessProbe Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setUsingProtocolReadinessProbe(
+            boolean isUsingProtocolReadinessProbe) {
+        checkIfFrozen("setUsingProtocolReadinessProbe");
+        this.isUsingProtocolReadinessProbe = isUsingProtocolReadinessProbe;
+        return this;
+    }
+
+    public boolean isRunningScriptsViaJdbc() {
+        return isRunningScriptsViaJdbc;
+    }
+
+    /**
+     * Whether {@link DB#run(String)}, {@link DB#source(String)} and their variants should run
+     * scripts over JDBC connections, instead of launching a new mysql command line client process
+     * for each of them. This is much faster for many small scripts, but requires a MariaDB JDBC
+     * driver on the classpath.
+     *
+     * @param isRunningScriptsViaJdbc Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setRunningScriptsViaJdbc(boolean isRunningScriptsViaJdbc) {
+        checkIfFrozen("setRunningScriptsViaJdbc");
+        this.isRunningScriptsViaJdbc = isRunningScriptsViaJdbc;
+        return this;
+    }
+
+    public boolean isSkippingUnchangedScripts() {
+        return isSkippingUnchangedScripts;
+    }
+
+    /**
+     * Whether {@link DB#source(String)} (and its variants for classpath resources and files) should
+     * skip scripts which were already sourced into the same database before. Scripts are identified
+     * by a hash of their content, which is recorded in the data directory, so this is useful mainly
+     * with a persistent {@link #setDataDir(File) data directory}, to not seed it again on every
+     * start. Scripts sourced with force are not recorded, as some of their statements may have
+     * failed. Dropping a database, e.g. with {@link DB#dropDBs(java.util.Collection)}, forgets the
+     * scripts sourced into it.
+     *
+     * @param isSkippingUnchangedScripts Default value is false, set true to enable
+     * @return returns this
+     */
+    public DBConfigurationBuilder setSkippingUnchangedScripts(boolean isSkippingUnchangedScripts) {
+        checkIfFrozen("setSkippingUnchangedScripts");
+        this.isSkippingUnchangedScripts = isSkippingUnchangedScripts;
+        return this;
+    }
+
+    public Profile getPerformanceProfile() {
+        return performanceProfile;
+    }
+
+    /**
+     * Set of options to start the DB server with, to tune it e.g. for fast throwaway DBs in tests,
+     * or for many DBs on a machine with little memory. See {@link Profile}.
+     *
+     * @param performanceProfile Default value is {@link Profile#DURABLE}, which adds no options
+     * @return returns this
+     */
+    public DBConfigurationBuilder setPerformanceProfile(Profile performanceProfile) {
+        checkIfFrozen("setPerformanceProfile");
+        this.performanceProfile = requireNonNull(performanceProfile, "performanceProfile");
+        return this;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Approximate amount of memory which the caches, buffers and connections of the DB server
+     * should use at most, e.g. to run dozens of DBs side by side on one machine. The InnoDB buffer
+     * pool, other caches and buffers, and the maximum number of connections are sized to fit into
+     * this; this overrides the same options of the {@link #setPerformanceProfile(Profile)
+     * performance profile}, but not {@link #addArg(String)}.
+     *
+     * <p>This does not include the memory which the DB server needs regardless of its options, for
+     * its code and static tables, e.g. about 120 MB for MariaDB 11.4 on Linux.
+     *
+     * @param bytes Default value is 0, for no budget; else at least 32 MB (32 * 1024 * 1024)
+     * @return returns this
+     */
+    public DBConfigurationBuilder setMemoryBudget(long bytes) {
+        checkIfFrozen("setMemoryBudget");
+        if (bytes != 0 && bytes < MemoryBudget.MIN_BYTES) {
+            throw new IllegalArgumentException(
+                    "Memory budget must be 0 or at least "
+                            + MemoryBudget.MIN_BYTES / MemoryBudget.MB
+                            + " MB: "
+                            + bytes);
+        }
+        this.memoryBudget = bytes;
+        return this;
+    }
+
+    public int getAutoSizingInstances() {
+        return autoSizingInstances;
+    }
+
+    /**
+     * Sizes the memory and threads of the DB server automatically, so that the given number of
+     * instances of it fit into the memory and CPU limits of the container (cgroup) which this JVM
+     * runs in, next to the JVM's own maximum heap. This derives a {@link #setMemoryBudget(long)
+     * memory budget} (at most 1 GB) and the number of InnoDB I/O and purge threads, and logs them.
+     * Without a container limit, the total memory and processors of the machine are used.
+     *
+     * <p>With an explicit {@link #setMemoryBudget(long) memory budget}, only the threads are sized
+     * (and logged). {@link #addArg(String)} overrides this.
+     *
+     * @param instances Default value is 0, to not size automatically; else how many DB instances
+     *     are started in the same container, e.g. the number of parallel test workers
+     * @return returns this
+     */
+    public DBConfigurationBuilder setAutoSizingInstances(int instances) {
+        checkIfFrozen("setAutoSizingInstances");
+        if (instances < 0) {
+            throw new IllegalArgumentException(
+                    "instances must be 0 (to not size automatically) or more: " + instances);
+        }
+        this.autoSizingInstances = instances;
+        return this;
+    }
+
+    public boolean isDataOnRamDisk() {
+        return isDataOnRamDisk;
+    }
+
+    /**
+     * Puts the default data and tmp directories and the socket on a RAM disk (a tmpfs mount, see
+     * {@link #setRamDiskDir(File)}), instead of below the system temporary directory. This avoids
+     * all disk I/O of the DB server, which makes it faster for tests, but its data is lost on a
+     * reboot (and it is deleted on shutdown, like in the temporary directory).
+     *
+     * <p>If the RAM disk directory does not exist, or has less than {@link
+     * #setRamDiskMinFreeSpace(long)} free space, this logs a warning and falls back to disk. A data
+     * or tmp directory or socket which was explicitly set is not moved.
+     *
+     * @param isDataOnRamDisk Default value is false, set true to use a RAM disk
+     * @return returns this
+     */
+    public DBConfigurationBuilder setDataOnRamDisk(boolean isDataOnRamDisk) {
+        checkIfFrozen("setDataOnRamDisk");
+        this.isDataOnRamDisk = isDataOnRamDisk;
+        return this;
+    }
+
+    public File getRamDiskDir() {
+        return ramDiskDir;
+    }
+
+    /**
+     * Sets the tmpfs mount which {@link #setDataOnRamDisk(boolean)} uses. A "MariaDB4j"
+     * subdirectory is created in it.
+     *
+     * @param ramDiskDir Default value is /dev/shm, which exists on most Linux systems
+     * @return returns this
+     */
+    public DBConfigurationBuilder setRamDiskDir(File ramDiskDir) {
+        checkIfFrozen("setRamDiskDir");
+        this.ramDiskDir = requireNonNull(ramDiskDir, "ramDiskDir");
+        return this;
+    }
+
+    public long getRamDiskMinFreeSpace() {
+        return ramDiskMinFreeSpace;
+    }
+
+    /**
+     * Sets how much space must be free on the RAM disk for {@link #setDataOnRamDisk(boolean)} to
+     * use it. An empty data directory already needs about 150 MB (mostly for the InnoDB redo log),
+     * and the data of the tests comes on top.
+     *
+     * @param bytes Default value is 512 MB
+     * @return returns this
+     */
+    public DBConfigurationBuilder setRamDiskMinFreeSpace(long bytes) {
+        checkIfFrozen("setRamDiskMinFreeSpace");
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes must not be negative: " + bytes);
+        }
+        this.ramDiskMinFreeSpace = bytes;
+        return this;
+    }
+
+    public int getPortRangeFrom() {
+        return portRangeFrom;
+    }
+
+    public int getPortRangeTo() {
+        return portRangeTo;
+    }
+
+    /**
+     * Reserves the port (if it is not {@link #setPort(int) set}) from a range, using lock files in
+     * the {@link #setPortLockDir(File) port lock directory}, instead of {@link #detectFreePort()}.
+     * Unlike the latter, this is safe when many DBs are started in parallel by several processes
+     * (e.g. test forks) which use the same range and lock directory. The port is reserved by {@link
+     * #build()}, and until {@link DB#stop()}.
+     *
+     * <p>If another program binds the port anyway, {@link DB#start()} notices when the DB server
+     * fails to bind it, and retries with another port from the range. {@link #getPort()} and {@link
+     * #getURL(String)} then return the new one.
+     *
+     * <p>The range should not overlap with the ephemeral ports of the operating system (e.g.
+     * 32768-60999 on Linux and 49152-65535 on Windows and macOS), from which client connections get
+     * their local port.
+     *
+     * @param from first port of the range, e.g. 20000
+     * @param to last port of the range (inclusive), e.g. 29999
+     * @return returns this
+     */
+    public DBConfigurationBuilder setPortRange(int from, int to) {
+        checkIfFrozen("setPortRange");
+        if (from < 1 || to > 65535 || from > to) {
+            throw new IllegalArgumentException("Invalid port range: " + from + "-" + to);
+        }
+        this.portRangeFrom = from;
+        this.portRangeTo = to;
+        return this;
+    }
+
+    public File getPortLockDir() {
+        return portLockDir;
+    }
+
+    /**
+     * Sets the directory with the lock files of {@link #setPortRange(int, int)}, which all
+     * processes that should not use the same ports must share.
+     *
+     * @param portLockDir Default value is MariaDB4j/ports in the system temporary directory
+     * @return returns this
+     */
+    public DBConfigurationBuilder setPortLockDir(File portLockDir) {
+        checkIfFrozen("setPortLockDir");
+        this.portLockDir = requireNonNull(portLockDir, "portLockDir");
+        return this;
+    }
+
+    public boolean isSocketOnly() {
+        return isSocketOnly;
+    }
+
+    /**
+     * Starts the DB server with "--skip-networking", so that it only listens on its UNIX socket,
+     * and not on any TCP port. No port is chosen or reserved at all, so there can be no port
+     * collisions, and clients skip the TCP/IP stack. {@link #getURL(String)} then returns a URL
+     * with the "localSocket" option of MariaDB Connector/J, which requires JNA
+     * (net.java.dev.jna:jna) on the classpath of the application. The mysql client (e.g. of {@link
+     * DB#run(String)}) uses the socket anyway.
+     *
+     * <p>A {@link #setPort(int) set port} is ignored. This is not supported on Windows, which has
+     * no UNIX sockets.
+     *
+     * @param isSocketOnly Default value is false, set true to not open a TCP port
+     * @return returns this
+     */
+    public DBConfigurationBuilder setSocketOnly(boolean isSocketOnly) {
+        checkIfFrozen("setSocketOnly");
+        this.isSocketOnly = isSocketOnly;
+        return this;
+    }
+
     public String getURL(String databaseName) {
+        if (isSocketOnly) {
+            return "jdbc:mariadb://localhost/"
+                    + databaseName
+                    + "?localSocket="
+                    + new File(_getSocket()).getAbsolutePath();
+        }
         return "jdbc:mariadb://localhost:" + getPort() + "/" + databaseName;
     }
 
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Listener which is notified about the phases of creating and starting a {@link DB}, e.g. to track
+ * how long they take. See {@link DBConfigurationBuilder#setLifecycleListener} and {@link
+ * DB#getStartupTimings()}.
+ *
+ * @author Michael Vorburger
+ */
+@FunctionalInterface
+public interface DBLifecycleListener {
+
+    /**
+     * Called (on the thread which did the work) whenever a phase completed successfully.
+     *
+     * @param timing which phase completed, when it started, and how long it took
+     */
+    void onPhaseCompleted(PhaseTiming timing);
+
+    enum Phase {
+        /** Preparing (and possibly cleaning up) the base, data and tmp directories. */
+        PREPARE_DIRECTORIES,
+        /** Unpacking the DB binaries from the classpath, or finding that they already are. */
+        UNPACK,
+        /** Installing a new data directory, via script, bootstrap or template. */
+        INSTALL,
+        /**
+         * Launching the DB server process. Without the protocol readiness probe, this lasts until
+         * the process wrote its first console output, and it is only reported once the DB server is
+         * ready.
+         */
+        SPAWN,
+        /** Waiting for the launched DB server to be ready for connections. */
+        WAIT_UNTIL_READY
+    }
+
+    final class PhaseTiming {
+
+        private final Phase phase;
+        private final Instant startedAt;
+        private final Duration duration;
+        private final long bytes;
+
+        PhaseTiming(Phase phase, Instant startedAt, Duration duration, long bytes) {
+            this.phase = phase;
+            this.startedAt = startedAt;
+            this.duration = duration;
+            this.bytes = bytes;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        /**
+         * Total size of the DB binaries, for {@link Phase#UNPACK}, if they were extracted, instead
+         * of being used as they already were (as per their manifest, or from the shared cache).
+         * This is the size of all files of the binaries, including any which extracting found
+         * already there and did not copy again.
+         *
+         * @return number of bytes, or 0 if the binaries were not extracted (or for other phases)
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            String text = phase + "=" + duration.toMillis() + "ms";
+            return bytes > 0 ? text + " (" + bytes / 1024 / 1024 + " MB)" : text;
+        }
+    }
+}
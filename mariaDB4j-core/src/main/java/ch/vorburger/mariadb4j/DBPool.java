@@ -0,0 +1,301 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of started DBs, e.g. for test suites which would otherwise pay for unpacking, installing and
+ * starting a new DB per test class.
+ *
+ * <p>The pool keeps a fixed number of DBs started in the background, each with its own port, socket
+ * and data directory, but otherwise configured like the given template. {@link #acquire()} hands
+ * out one which is ready (or waits for one to become ready), and {@link #release(DB)} gives it
+ * back. Released DBs are either reset by the {@link Reset} given to the pool and handed out again,
+ * or (if there is none, or it fails) stopped and replaced by a new one, in the background.
+ *
+ * <p>The DBs of the pool do not each register a JVM shutdown hook, like other DBs do (see {@link
+ * DB#cleanupOnExit()}); the pool registers a single one instead, which closes it, and stops any DB
+ * which is still starting.
+ *
+ * <p>Using {@link DBConfigurationBuilder#setUsingSharedBinariesCache(boolean)} and {@link
+ * DBConfigurationBuilder#setUsingDataDirTemplateCache(boolean)} on the template makes replacing DBs
+ * much cheaper.
+ *
+ * @author Michael Vorburger
+ */
+public class DBPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DBPool.class);
+
+    /** Resets a released DB so that it can be handed out again, e.g. by dropping databases. */
+    @FunctionalInterface
+    public interface Reset {
+        void reset(DB db) throws ManagedProcessException;
+    }
+
+    private final DBConfigurationBuilder template;
+    private final Reset reset;
+    private final Executor executor;
+    private final BlockingQueue<CompletableFuture<DB>> available = new LinkedBlockingQueue<>();
+    private final Set<DB> acquired = ConcurrentHashMap.newKeySet();
+    private final Set<DB> live = ConcurrentHashMap.newKeySet(); // created and not yet discarded
+    private final AtomicInteger instanceCounter = new AtomicInteger();
+    private final Thread shutdownHook = new Thread(this::closeOnExit, "Shutdown Hook for DBPool");
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool which discards each released DB.
+     *
+     * @param template configuration of the DBs (not yet built); it is only copied, never built
+     *     itself
+     * @param size how many DBs to keep started
+     */
+    public DBPool(DBConfigurationBuilder template, int size) {
+        this(template, size, null);
+    }
+
+    /**
+     * Creates a pool which resets released DBs.
+     *
+     * @param template configuration of the DBs; it is only copied, never built itself
+     * @param size how many DBs to keep started
+     * @param reset how to reset a released DB, or null to discard it
+     */
+    public DBPool(DBConfigurationBuilder template, int size, Reset reset) {
+        this(template, size, reset, null);
+    }
+
+    /**
+     * Creates a pool which resets released DBs.
+     *
+     * @param template configuration of the DBs; it is only copied, never built itself
+     * @param size how many DBs to keep started
+     * @param reset how to reset a released DB, or null to discard it
+     * @param executor Executor to create, start, reset and stop DBs on, or null for the default one
+     *     of {@link DB#startAsync()}
+     */
+    public DBPool(DBConfigurationBuilder template, int size, Reset reset, Executor executor) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be at least 1: " + size);
+        }
+        this.template = template;
+        this.reset = reset;
+        this.executor = executor != null ? executor : DB.defaultAsyncExecutor;
+        for (int i = 0; i < size; i++) {
+            offer(newStartedDB());
+        }
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Takes a started DB from the pool, waiting for it to become ready if it is not yet.
+     *
+     * @return DB ready for connections, which must be given back with {@link #release(DB)}
+     * @throws ManagedProcessException if the DB failed to start (a replacement is then created)
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public DB acquire() throws ManagedProcessException, InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("DBPool is closed");
+        }
+        try {
+            DB db = available.take().get();
+            acquired.add(db);
+            return db;
+        } catch (ExecutionException e) {
+            offer(newStartedDB());
+            Throwable cause = e.getCause();
+            if (cause instanceof ManagedProcessException managedProcessException) {
+                throw managedProcessException;
+            }
+            throw new ManagedProcessException("Starting pooled DB failed", cause);
+        }
+    }
+
+    /**
+     * Gives a DB back to the pool. This does not block; it is reset, or discarded and replaced, in
+     * the background.
+     *
+     * @param db DB previously returned by {@link #acquire()}
+     */
+    public void release(DB db) {
+        if (!acquired.remove(db)) {
+            if (closed) {
+                // close() already stopped it
+                return;
+            }
+            throw new IllegalArgumentException("DB was not acquired from this DBPool: " + db);
+        }
+        if (closed) {
+            // close() came after it was removed from acquired above, so it did not stop it
+            discard(db);
+            return;
+        }
+        if (reset == null) {
+            offer(newStartedDB());
+            executor.execute(() -> discard(db));
+            return;
+        }
+        offer(
+                CompletableFuture.completedFuture(db)
+                        .thenComposeAsync(
+                                releasedDB -> {
+                                    try {
+                                        reset.reset(releasedDB);
+                                        return CompletableFuture.completedFuture(releasedDB);
+                                    } catch (ManagedProcessException | RuntimeException e) {
+                                        logger.warn("Resetting pooled DB failed, replacing it", e);
+                                        discard(releasedDB);
+                                        return newStartedDB();
+                                    }
+                                },
+                                executor));
+    }
+
+    /** Stops all DBs of this pool, including those which are currently acquired. */
+    @Override
+    public void close() {
+        closed = true;
+        for (DB db : List.copyOf(acquired)) {
+            // Unless a concurrent release(db) got it first
+            if (acquired.remove(db)) {
+                discard(db);
+            }
+        }
+        CompletableFuture<DB> future;
+        while ((future = available.poll()) != null) {
+            // DBs which are not ready yet are discarded by offer() once they are
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                discard(future.join());
+            }
+        }
+        if (live.isEmpty()) {
+            removeShutdownHook();
+        }
+    }
+
+    private void closeOnExit() {
+        close();
+        // DBs which are still starting, which offer() would discard once they are ready
+        for (DB db : List.copyOf(live)) {
+            discard(db);
+        }
+    }
+
+    private void removeShutdownHook() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down, and this may well be running in the hook
+        }
+    }
+
+    private void offer(CompletableFuture<DB> future) {
+        available.add(
+                future.whenComplete(
+                        (db, throwable) -> {
+                            if (db != null && closed) {
+                                discard(db);
+                            }
+                        }));
+    }
+
+    private CompletableFuture<DB> newStartedDB() {
+        return DB.newEmbeddedDBAsync(newConfiguration(), executor)
+                .thenCompose(
+                        db -> {
+                            // This pool cleans up instead, see the class javadoc
+                            db.setCleaningUpOnExit(false);
+                            live.add(db);
+                            return db.startAsync(executor)
+                                    .whenComplete(
+                                            (startedDB, throwable) -> {
+                                                if (throwable != null) {
+                                                    discard(db);
+                                                }
+                                            });
+                        });
+    }
+
+    /**
+     * Configuration of a new DB of this pool. Port and socket are always chosen anew, and data and
+     * temporary directories which the template explicitly set get a sub-directory per DB.
+     *
+     * @return configuration of the next DB to start
+     */
+    protected DBConfiguration newConfiguration() {
+        DBConfigurationBuilder defaults = DBConfigurationBuilder.newBuilder();
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder(template);
+        builder.setPort(0);
+        builder.setSocket(null);
+        String subDirectory = "pool-" + instanceCounter.incrementAndGet();
+        File dataDir = template.getDataDir();
+        if (dataDir != null && !dataDir.equals(defaults.getDataDir())) {
+            builder.setDataDir(new File(dataDir, subDirectory));
+        }
+        File tmpDir = template.getTmpDir();
+        if (tmpDir != null && !tmpDir.equals(defaults.getTmpDir())) {
+            builder.setTmpDir(new File(tmpDir, subDirectory).getPath());
+        }
+        return builder.build();
+    }
+
+    private void discard(DB db) {
+        // Only once, e.g. a DB which became ready while close() was running may get here from both
+        if (!live.remove(db)) {
+            return;
+        }
+        try {
+            db.stop();
+        } catch (ManagedProcessException e) {
+            logger.warn("Stopping pooled DB failed", e);
+        }
+        DBConfiguration configuration = db.getConfiguration();
+        if (configuration.isDeletingTemporaryBaseAndDataDirsOnShutdown()) {
+            deleteIfTemporary(configuration.getDataDir(), configuration);
+            deleteIfTemporary(configuration.getTmpDir(), configuration);
+        }
+        if (closed && live.isEmpty()) {
+            removeShutdownHook();
+        }
+    }
+
+    private static void deleteIfTemporary(File directory, DBConfiguration configuration) {
+        if (Util.isTemporaryDirectory(directory, configuration)) {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.exec.OutputStreamLogDispatcher;
+import ch.vorburger.exec.OutputStreamType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Session with a long-lived mysql command line client process, to run many commands without
+ * starting a new client (and authenticating) for each of them, like {@link DB#run(String)} does.
+ * See {@link DB#openSession(String, String, String)}.
+ *
+ * <p>Commands are written to the client's stdin, each followed by a sentinel query whose result
+ * marks the end of its output. The client is not started with --force, so just like for {@link
+ * DB#run(String)} it stops at the first failing statement of a command, which then makes {@link
+ * #run(String)} throw. The client exits then, and with it the state of its session (user variables,
+ * temporary tables, the current database etc.) is lost, so the session fails: any further command
+ * throws an {@link IllegalStateException}, and a new session has to be opened to carry on.
+ *
+ * <p>A command must not leave a quoted string or comment open. It may change the delimiter, but the
+ * next command starts with the delimiter reset to ";" again.
+ *
+ * @author Michael Vorburger
+ */
+public final class DBSession implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DBSession.class);
+
+    private static final String SENTINEL_COLUMN = "mariadb4j_session_sentinel";
+    private static final int MAX_ERROR_LINES = 100;
+
+    private final List<String> commandLine;
+    private final File workingDirectory;
+    private final Charset charset;
+    private final OutputStreamLogDispatcher outputStreamLogDispatcher;
+    private final String sentinelPrefix = "mariadb4j-session-" + UUID.randomUUID() + "-";
+    private long sentinels;
+    private boolean closed;
+    private boolean failed;
+
+    private Process process;
+    private Writer stdin;
+    // An empty Optional marks the end of the client's output
+    private BlockingQueue<Optional<String>> stdout;
+    private Deque<String> stderr;
+    private CountDownLatch stderrEnd;
+
+    DBSession(
+            List<String> commandLine,
+            File workingDirectory,
+            Charset charset,
+            OutputStreamLogDispatcher outputStreamLogDispatcher) {
+        this.commandLine = List.copyOf(commandLine);
+        this.workingDirectory = workingDirectory;
+        this.charset = charset;
+        this.outputStreamLogDispatcher = outputStreamLogDispatcher;
+    }
+
+    /**
+     * Runs a command (one or more SQL statements) in this session. Its output is logged.
+     *
+     * @param command the SQL statement(s) to run
+     * @throws ManagedProcessException if a statement failed, or the client could not be run
+     * @throws IllegalStateException if this session was closed, or failed at an earlier command
+     */
+    public synchronized void run(String command) throws ManagedProcessException {
+        if (failed) {
+            throw new IllegalStateException(
+                    "Session failed at an earlier command, and lost its state; open a new one");
+        }
+        if (closed) {
+            throw new IllegalStateException("Session was closed");
+        }
+        try {
+            if (process == null) {
+                start();
+            }
+            String sentinel = sentinelPrefix + ++sentinels;
+            // "\d ;" resets the delimiter (and also works in the middle of a statement), and ";"
+            // terminates the command's last statement, if it wasn't already (else it's ignored)
+            stdin.write(command);
+            stdin.write("\n\\d ;\n;\nSELECT '" + sentinel + "' AS " + SENTINEL_COLUMN + ";\n");
+            stdin.flush();
+            while (true) {
+                Optional<String> line = stdout.take();
+                if (line.isEmpty()) {
+                    throw failed(command, null);
+                }
+                if (line.get().equals(sentinel)) {
+                    return;
+                }
+                if (!line.get().equals(SENTINEL_COLUMN)) {
+                    log(OutputStreamType.STDOUT, line.get());
+                }
+            }
+        } catch (ManagedProcessException e) {
+            throw e;
+        } catch (IOException e) {
+            if (process == null) {
+                fail();
+                throw new ManagedProcessException("Could not start " + commandLine.get(0), e);
+            }
+            throw failed(command, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail();
+            throw new ManagedProcessException("Interrupted while running: " + command, e);
+        }
+    }
+
+    /**
+     * Ends the session, by closing the client's stdin, which makes it exit.
+     *
+     * <p>Sessions are closed automatically when their DB is stopped.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        stop();
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Starts the client, and waits until it is connected.
+     *
+     * @throws ManagedProcessException if the client could not be started or connect
+     */
+    synchronized void open() throws ManagedProcessException {
+        run("");
+    }
+
+    private void start() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(commandLine).directory(workingDirectory);
+        process = builder.start();
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), charset));
+        BlockingQueue<Optional<String>> stdout = new LinkedBlockingQueue<>();
+        Deque<String> stderr = new ArrayDeque<>();
+        CountDownLatch stderrEnd = new CountDownLatch(1);
+        pump(
+                process.getInputStream(),
+                line -> stdout.add(Optional.of(line)),
+                () -> stdout.add(Optional.empty()));
+        pump(
+                process.getErrorStream(),
+                line -> {
+                    log(OutputStreamType.STDERR, line);
+                    synchronized (stderr) {
+                        if (stderr.size() == MAX_ERROR_LINES) {
+                            stderr.removeFirst();
+                        }
+                        stderr.addLast(line);
+                    }
+                },
+                stderrEnd::countDown);
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.stderrEnd = stderrEnd;
+        logger.info("Started session with {} (pid {})", commandLine.get(0), process.pid());
+    }
+
+    private void pump(InputStream stream, Consumer<String> consumer, Runnable atEnd) {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try (BufferedReader reader =
+                                    new BufferedReader(new InputStreamReader(stream, charset))) {
+                                String line;
+                                while ((line = reader.readLine()) != null) {
+                                    consumer.accept(line);
+                                }
+                            } catch (IOException e) {
+                                logger.debug("Reading output of session client failed", e);
+                            } finally {
+                                atEnd.run();
+                            }
+                        },
+                        "MariaDB4j-DBSession-" + process.pid());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private ManagedProcessException failed(String command, IOException cause) {
+        String message =
+                command.isBlank()
+                        ? "An error occurred while starting a session"
+                        : "An error occurred while running a command in session: " + command;
+        try {
+            // Let the client finish printing its error message, and exit
+            if (process.waitFor(5, TimeUnit.SECONDS)) {
+                message += " (exit value " + process.exitValue() + ")";
+            }
+            stderrEnd.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Deque<String> lines = stderr;
+        synchronized (lines) {
+            if (!lines.isEmpty()) {
+                message += ", last lines of console:\n" + String.join("\n", lines);
+            }
+        }
+        fail();
+        return new ManagedProcessException(message, cause);
+    }
+
+    /** Stops the client, and marks this session as failed (and closed, so that DB forgets it). */
+    private void fail() {
+        failed = true;
+        closed = true;
+        stop();
+    }
+
+    private void stop() {
+        if (process == null) {
+            return;
+        }
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            // The client most probably already exited
+            logger.debug("Closing stdin of session client failed", e);
+        }
+        try {
+            process.getInputStream().close();
+        } catch (IOException e) {
+            logger.debug("Closing stdout of session client failed", e);
+        }
+        process.destroy();
+        process = null;
+    }
+
+    private void log(OutputStreamType type, String line) {
+        logger.atLevel(outputStreamLogDispatcher.dispatch(type, line))
+                .log("{}: {}", new File(commandLine.get(0)).getName(), line);
+    }
+}
@@ -323,7 +323,7 @@ class DBShutdownHook extends Thread implements FileVisitor<Path> {
         File dataDir = dataDirSupplier.get();
         if (dataDir.exists()
                 && configuration.isDeletingTemporaryBaseAndDataDirsOnShutdown()
-                && Util.isTemporaryDirectory(dataDir.getAbsoluteFile())) {
+                && Util.isTemporaryDirectory(dataDir.getAbsoluteFile(), configuration)) {
             logger.info(
                     "cleanupOnExit() ShutdownHook quietly deleting temporary DB data directory: "
                             + dataDir);
@@ -332,14 +332,15 @@ class DBShutdownHook extends Thread implements FileVisitor<Path> {
         File baseDir = baseDirSupplier.get();
         if (baseDir.exists()
                 && configuration.isDeletingTemporaryBaseAndDataDirsOnShutdown()
-                && Util.isTemporaryDirectory(baseDir.getAbsoluteFile())) {
+                && !configuration.isUsingSharedBinariesCache()
+                && Util.isTemporaryDirectory(baseDir.getAbsoluteFile(), configuration)) {
             logger.info(
                     "cleanupOnExit() ShutdownHook quietly deleting temporary DB base directory: "
                             + baseDir);
             deleteQuietly(baseDir);
         }
         File tmpDir = tmpDirSupplier.get();
-        if (tmpDir.exists() && Util.isTemporaryDirectory(tmpDir.getAbsoluteFile())) {
+        if (tmpDir.exists() && Util.isTemporaryDirectory(tmpDir.getAbsoluteFile(), configuration)) {
             logger.info(
                     "cleanupOnExit() ShutdownHook quietly deleting temporary DB tmp directory: "
                             + tmpDir);
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Machine-wide cache of freshly installed data directories, used as templates for new DBs.
+ *
+ * <p>Running the install script is the slowest part of creating a new DB, so it is done only once
+ * per key (DB binaries, character set and arguments) into a template directory, which new DBs then
+ * simply copy. On Linux and macOS the copy is done using <code>cp</code> with copy-on-write clones
+ * (reflinks) where the file system supports them, so that it costs almost nothing. Hard links are
+ * intentionally never used, because the server modifies the (InnoDB) data files in place.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class DataDirTemplateCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataDirTemplateCache.class);
+
+    private static final long CP_MAX_WAIT_IN_SECONDS = 60;
+
+    private DataDirTemplateCache() {}
+
+    /**
+     * Directory within the cache for the template with the given key.
+     *
+     * @param cacheDir root directory of the cache
+     * @param key everything that influences the content of an installed data directory
+     * @return directory (which may not exist yet) to install the template into
+     */
+    static File getTemplateDir(File cacheDir, String key) {
+        String digest =
+                HexFormat.of().formatHex(BinariesCache.newDigest().digest(key.getBytes(UTF_8)));
+        return new File(cacheDir, "data-" + digest.substring(0, 16));
+    }
+
+    /**
+     * Copies the template into the (empty) data directory.
+     *
+     * @param templateDir populated template directory
+     * @param dataDir data directory of the new DB
+     * @throws IOException if copying failed
+     */
+    static void copy(File templateDir, File dataDir) throws IOException {
+        if (!copyUsingCp(templateDir, dataDir)) {
+            copyUsingJava(templateDir.toPath(), dataDir.toPath());
+        }
+        Files.deleteIfExists(dataDir.toPath().resolve(BinariesCache.COMPLETE_MARKER));
+    }
+
+    private static boolean copyUsingCp(File templateDir, File dataDir) throws IOException {
+        ProcessBuilder processBuilder;
+        if (SystemUtils.IS_OS_LINUX) {
+            processBuilder =
+                    new ProcessBuilder(
+                            "cp",
+                            "-R",
+                            "--reflink=auto",
+                            "--preserve=mode,timestamps",
+                            templateDir.getAbsolutePath() + "/.",
+                            dataDir.getAbsolutePath());
+        } else if (SystemUtils.IS_OS_MAC) {
+            // -c uses clonefile(2), which only works on APFS; we fall back to Java if it fails
+            processBuilder =
+                    new ProcessBuilder(
+                            "cp",
+                            "-c",
+                            "-R",
+                            "-p",
+                            templateDir.getAbsolutePath() + "/.",
+                            dataDir.getAbsolutePath());
+        } else {
+            return false;
+        }
+        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        try {
+            Process process = processBuilder.start();
+            if (!process.waitFor(CP_MAX_WAIT_IN_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                logger.warn("cp {} {} took too long, copying using Java", templateDir, dataDir);
+                return false;
+            }
+            if (process.exitValue() != 0) {
+                logger.info("cp {} {} failed, copying using Java", templateDir, dataDir);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            logger.info("cp {} {} failed, copying using Java", templateDir, dataDir, e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while copying " + templateDir);
+        }
+    }
+
+    private static void copyUsingJava(Path templateDir, Path dataDir) throws IOException {
+        try (Stream<Path> files = Files.walk(templateDir)) {
+            for (Path source : (Iterable<Path>) files::iterator) {
+                Path target = dataDir.resolve(templateDir.relativize(source).toString());
+                if (Files.isDirectory(source)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(
+                            source,
+                            target,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ch.vorburger.exec.ManagedProcessException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs SQL scripts over JDBC connections, instead of launching a new mysql command line client
+ * process for each script.
+ *
+ * <p>Scripts are decoded with the DB's default character set and split into statements like the
+ * client does (see {@link SqlScriptSplitter}), while they are read, so that even very large scripts
+ * do not have to fit into memory. Consecutive INSERT (etc.) statements are sent in batches. Like
+ * with the client, a failing statement fails the script, unless forced, in which case it is only
+ * logged and the remaining statements still run. Result sets are logged, like the client's output.
+ *
+ * <p>This requires a MariaDB JDBC driver on the classpath. Connections are made to the TCP port
+ * (like {@link DBConfiguration#getURL(String)}), because the driver only supports UNIX sockets if
+ * JNA is on the classpath as well. In {@link DBConfiguration#isSocketOnly()} mode, there is no TCP
+ * port, so JNA is required.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class JdbcScriptRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcScriptRunner.class);
+
+    private static final Set<String> BATCHABLE_KEYWORDS =
+            Set.of("INSERT", "REPLACE", "UPDATE", "DELETE");
+    private static final int MAX_BATCH_STATEMENTS = 1000;
+    // Well below the max_allowed_packet of the DB, see DB.startPreparation()
+    private static final int MAX_BATCH_LENGTH = 1024 * 1024;
+    private static final int QUERY_FETCH_SIZE = 1000;
+
+    private final DBConfiguration configuration;
+
+    JdbcScriptRunner(DBConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Runs a script.
+     *
+     * @param script SQL script, possibly containing <code>DELIMITER</code> lines
+     * @param username user name, or null for the default (root)
+     * @param password password, or null for none
+     * @param dbName database to use, or null for none
+     * @param force whether to run the remaining statements if one failed
+     * @throws IOException if reading the script failed
+     * @throws SQLException if connecting failed, or a statement failed and force is false
+     */
+    void run(InputStream script, String username, String password, String dbName, boolean force)
+            throws IOException, SQLException {
+        SqlScriptSplitter splitter =
+                new SqlScriptSplitter(
+                        new InputStreamReader(script, getScriptCharset(configuration)));
+        // A new connection for every script, so that no session state (variables, temporary
+        // tables, the current database, an open transaction...) leaks from one script into the next
+        try (Connection connection = connect(username, password, dbName);
+                Statement statement = connection.createStatement()) {
+            List<String> batch = new ArrayList<>();
+            int batchLength = 0;
+            String sql;
+            while ((sql = splitter.next()) != null) {
+                if (isBatchable(sql)) {
+                    batch.add(sql);
+                    batchLength += sql.length();
+                    if (batch.size() < MAX_BATCH_STATEMENTS && batchLength < MAX_BATCH_LENGTH) {
+                        continue;
+                    }
+                }
+                executeBatch(statement, batch, force);
+                batch.clear();
+                batchLength = 0;
+                if (!isBatchable(sql)) {
+                    execute(statement, sql, force);
+                }
+            }
+            executeBatch(statement, batch, force);
+        }
+    }
+
+    /**
+     * Runs a query, over a new connection which is closed when the returned stream is closed. Rows
+     * are fetched from the DB in chunks while the stream is consumed.
+     *
+     * @param sql the query
+     * @param username user name, or null for the default (root)
+     * @param password password, or null for none
+     * @param dbName database to use, or null for none
+     * @return rows, with the values as Strings (null for NULL)
+     * @throws SQLException if connecting failed, or the query failed
+     */
+    Stream<String[]> query(String sql, String username, String password, String dbName)
+            throws SQLException {
+        Connection connection = connect(username, password, dbName);
+        try {
+            Statement statement = connection.createStatement();
+            statement.setFetchSize(QUERY_FETCH_SIZE);
+            if (!statement.execute(sql)) {
+                connection.close();
+                return Stream.empty();
+            }
+            ResultSet resultSet = statement.getResultSet();
+            int columns = resultSet.getMetaData().getColumnCount();
+            Spliterator<String[]> rows =
+                    new Spliterators.AbstractSpliterator<>(
+                            Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                        @Override
+                        public boolean tryAdvance(Consumer<? super String[]> action) {
+                            try {
+                                if (!resultSet.next()) {
+                                    return false;
+                                }
+                                String[] row = new String[columns];
+                                for (int i = 0; i < columns; i++) {
+                                    row[i] = resultSet.getString(i + 1);
+                                }
+                                action.accept(row);
+                                return true;
+                            } catch (SQLException e) {
+                                throw new UncheckedIOException(
+                                        new ManagedProcessException(
+                                                "An error occurred while reading a query: " + sql,
+                                                e));
+                            }
+                        }
+                    };
+            return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(connection));
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    private Connection connect(String username, String password, String dbName)
+            throws SQLException {
+        // allowMultiQueries is needed to send a batch as multiple statements at once
+        String url = configuration.getURL(dbName != null ? dbName : "");
+        return DriverManager.getConnection(
+                url + (url.contains("?") ? "&" : "?") + "allowMultiQueries=true",
+                username != null && !username.isEmpty() ? username : "root",
+                password != null ? password : "");
+    }
+
+    /**
+     * Whether a statement can be run as part of a batch. This is the case for the INSERT (etc.)
+     * statements which make up most of the typical large script, such as a dump, and which never
+     * return a result set.
+     */
+    private static boolean isBatchable(String sql) {
+        int end = 0;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        String keyword = sql.substring(0, end).toUpperCase(Locale.ROOT);
+        return BATCHABLE_KEYWORDS.contains(keyword);
+    }
+
+    /**
+     * Runs a batch of statements in a single round trip. Like the client, without force this stops
+     * at the first failing statement (because the server does for multiple statements sent at
+     * once), and with force it runs all of them (because the driver does for a JDBC batch).
+     */
+    private static void executeBatch(Statement statement, List<String> batch, boolean force)
+            throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            execute(statement, batch.get(0), force);
+        } else if (force) {
+            for (String sql : batch) {
+                statement.addBatch(sql);
+            }
+            try {
+                statement.executeBatch();
+            } catch (BatchUpdateException e) {
+                int[] updateCounts = e.getUpdateCounts();
+                for (int i = 0; i < updateCounts.length && i < batch.size(); i++) {
+                    if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                        logger.error(
+                                "Statement failed (continuing, because of force): {}",
+                                batch.get(i));
+                    }
+                }
+                logger.debug("Batch failed (continued, because of force)", e);
+            } finally {
+                statement.clearBatch();
+            }
+        } else {
+            execute(statement, String.join(";\n", batch), false);
+        }
+    }
+
+    private static void execute(Statement statement, String sql, boolean force)
+            throws SQLException {
+        try {
+            execute(statement, sql);
+        } catch (SQLException e) {
+            if (!force) {
+                throw e;
+            }
+            logger.error("Statement failed (continuing, because of force): {}", sql, e);
+        }
+    }
+
+    private static void execute(Statement statement, String sql) throws SQLException {
+        boolean hasResultSet = statement.execute(sql);
+        while (true) {
+            if (hasResultSet) {
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    log(resultSet);
+                }
+            } else if (statement.getUpdateCount() == -1) {
+                return;
+            }
+            hasResultSet = statement.getMoreResults();
+        }
+    }
+
+    private static void log(ResultSet resultSet) throws SQLException {
+        // Like the client's --batch output: tab separated, with a header line
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columns = metaData.getColumnCount();
+        List<String> values = new ArrayList<>(columns);
+        for (int i = 1; i <= columns; i++) {
+            values.add(metaData.getColumnLabel(i));
+        }
+        logger.info("{}", String.join("\t", values));
+        while (resultSet.next()) {
+            values.clear();
+            for (int i = 1; i <= columns; i++) {
+                values.add(resultSet.getString(i));
+            }
+            logger.info("{}", String.join("\t", values));
+        }
+    }
+
+    /** Java equivalent of the DB's default character set, in which scripts are expected to be. */
+    static Charset getScriptCharset(DBConfiguration configuration) {
+        String name = configuration.getDefaultCharacterSet();
+        if (name == null || name.toLowerCase(Locale.ROOT).startsWith("utf8")) {
+            return UTF_8;
+        }
+        if (name.equalsIgnoreCase("latin1")) {
+            // MariaDB's latin1 actually is cp1252
+            return Charset.forName("windows-1252");
+        }
+        try {
+            return Charset.forName(name);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            logger.warn("No Java equivalent of character set {}, reading scripts as UTF-8", name);
+            return UTF_8;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Closing connection failed", e);
+        }
+    }
+}
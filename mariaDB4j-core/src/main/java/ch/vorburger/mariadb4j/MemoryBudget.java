@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Derives DB server options from a memory budget for its caches, buffers and connections, see
+ * {@link DBConfigurationBuilder#setMemoryBudget(long)}.
+ *
+ * <p>Half of the budget goes to the InnoDB buffer pool, which holds the data and indexes. The other
+ * caches and buffers, which by default are sized for a dedicated server (e.g. 128 MB for each of
+ * the Aria page cache and MyISAM key buffer), get a fraction of it each. The rest is left for the
+ * server itself and its connections, whose number is limited accordingly.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class MemoryBudget {
+
+    static final long MB = 1024 * 1024;
+
+    /** Smallest budget which the DB server can (roughly) stay within. */
+    static final long MIN_BYTES = 32 * MB;
+
+    private MemoryBudget() {}
+
+    static List<String> getArgs(long bytes) {
+        if (bytes < MIN_BYTES) {
+            throw new IllegalArgumentException(
+                    "Memory budget must be at least " + MIN_BYTES / MB + " MB: " + bytes);
+        }
+        long maxConnections = clamp(bytes / MB, 20, 151);
+        List<String> args = new ArrayList<>();
+        args.add("--innodb_buffer_pool_size=" + bytes / 2 / MB + "M");
+        args.add("--innodb_log_buffer_size=" + clamp(bytes / 32 / MB, 2, 16) + "M");
+        args.add("--aria_pagecache_buffer_size=" + clamp(bytes / 16 / MB, 1, 128) + "M");
+        args.add("--key_buffer_size=" + clamp(bytes / 64 / MB, 1, 128) + "M");
+        args.add("--tmp_table_size=" + clamp(bytes / 16 / MB, 1, 16) + "M");
+        args.add("--max_heap_table_size=" + clamp(bytes / 16 / MB, 1, 16) + "M");
+        args.add("--table_open_cache=" + clamp(bytes / (256 * 1024), 64, 2000));
+        args.add("--table_definition_cache=" + clamp(bytes / (256 * 1024), 400, 2000));
+        args.add("--max_connections=" + maxConnections);
+        args.add("--thread_cache_size=" + clamp(maxConnections / 8, 4, 32));
+        args.add("--performance_schema=OFF");
+        return args;
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
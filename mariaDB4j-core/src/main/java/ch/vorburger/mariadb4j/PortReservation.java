@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reservation of a TCP port from a range, which is safe across processes (e.g. parallel test
+ * forks), unlike {@link DBConfigurationBuilder#detectFreePort()}. A port is reserved by holding an
+ * exclusive lock on a lock file for it in a shared directory, and only if it can currently be
+ * bound. The operating system releases the lock when the process ends, even if it crashed, so lock
+ * files are never deleted.
+ *
+ * <p>Within a JVM, reservations are additionally tracked in memory, and a lock file is only ever
+ * opened by the reservation which holds it. The locks are POSIX record locks on Linux and macOS,
+ * which a process loses when it closes <i>any</i> channel of the file, so merely trying to lock a
+ * file already locked by another DB of the same JVM would release that one's reservation.
+ *
+ * <p>The lock only keeps other MariaDB4j instances off the port. Another program could still bind
+ * it before the DB server does, in which case {@link DB#start()} uses {@link #moveToAnotherPort()}.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class PortReservation {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortReservation.class);
+
+    /** Absolute paths of the lock files held by the reservations of this JVM. */
+    private static final Set<String> lockedInThisJvm = ConcurrentHashMap.newKeySet();
+
+    private final File lockDir;
+    private final int from;
+    private final int to;
+    private volatile int port;
+    private FileChannel channel;
+    private FileLock lock;
+    private File lockFile;
+
+    /**
+     * Reserves a free port from the given range, starting at a random one of them.
+     *
+     * @throws IllegalStateException if all ports of the range are reserved or in use
+     * @throws UncheckedIOException if the lock directory or files could not be written
+     */
+    PortReservation(File lockDir, int from, int to) {
+        this.lockDir = lockDir;
+        this.from = from;
+        this.to = to;
+        reserveFrom(from + ThreadLocalRandom.current().nextInt(to - from + 1));
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * Makes sure the port is (still) reserved, and can be bound, e.g. before starting the DB server
+     * again after {@link #release()}; else moves to another port.
+     */
+    synchronized void ensureReserved() {
+        if (lock == null && !tryReserve(port)) {
+            logger.warn("Port {} was taken since it was reserved, moving to another one", port);
+            reserveFrom(next(port));
+        } else if (lock != null && !isBindable(port)) {
+            moveToAnotherPort();
+        }
+    }
+
+    /** Reserves another port (e.g. because another program has bound this one). */
+    synchronized void moveToAnotherPort() {
+        int previousPort = port;
+        FileChannel previousChannel = channel;
+        File previousLockFile = lockFile;
+        // The previous port is still locked here, so that it is not reserved again
+        reserveFrom(next(previousPort));
+        if (previousChannel != null) {
+            unlock(previousChannel, previousLockFile);
+        }
+        logger.info("Moved from port {} to port {}", previousPort, port);
+    }
+
+    /** Releases the reservation (but keeps the port number), e.g. when the DB is stopped. */
+    synchronized void release() {
+        if (channel != null) {
+            unlock(channel, lockFile);
+            channel = null;
+            lock = null;
+            lockFile = null;
+        }
+    }
+
+    private void reserveFrom(int firstPort) {
+        int candidate = firstPort;
+        for (int i = from; i <= to; i++) {
+            if (tryReserve(candidate)) {
+                return;
+            }
+            candidate = next(candidate);
+        }
+        throw new IllegalStateException(
+                "No free port in range "
+                        + from
+                        + "-"
+                        + to
+                        + " (with lock files in "
+                        + lockDir
+                        + ")");
+    }
+
+    private int next(int candidate) {
+        return candidate == to ? from : candidate + 1;
+    }
+
+    private boolean tryReserve(int candidate) {
+        File candidateLockFile = new File(lockDir, candidate + ".lock").getAbsoluteFile();
+        if (!lockedInThisJvm.add(candidateLockFile.getPath())) {
+            // Reserved by another DB in this JVM, so the file must not even be opened, see above
+            return false;
+        }
+        FileChannel candidateChannel = null;
+        try {
+            Files.createDirectories(lockDir.toPath());
+            candidateChannel =
+                    FileChannel.open(
+                            candidateLockFile.toPath(),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE);
+            FileLock candidateLock = candidateChannel.tryLock();
+            if (candidateLock != null && isBindable(candidate)) {
+                port = candidate;
+                channel = candidateChannel;
+                lock = candidateLock;
+                lockFile = candidateLockFile;
+                return true;
+            }
+        } catch (OverlappingFileLockException e) {
+            unlock(candidateChannel, candidateLockFile);
+            throw new IllegalStateException(
+                    "Port lock file " + candidateLockFile + " is locked outside of MariaDB4j", e);
+        } catch (IOException e) {
+            unlock(candidateChannel, candidateLockFile);
+            throw new UncheckedIOException(
+                    "Could not lock port " + candidate + " in " + lockDir, e);
+        }
+        unlock(candidateChannel, candidateLockFile);
+        return false;
+    }
+
+    private static boolean isBindable(int candidate) {
+        try (ServerSocket serverSocket = new ServerSocket()) {
+            // Like the DB server does, so that a port in TIME_WAIT counts as free
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(candidate));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void unlock(FileChannel fileChannel, File fileChannelLockFile) {
+        close(fileChannel);
+        lockedInThisJvm.remove(fileChannelLockFile.getPath());
+    }
+
+    private static void close(FileChannel fileChannel) {
+        if (fileChannel != null) {
+            try {
+                // This also releases its lock
+                fileChannel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close port lock file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checks whether a DB server is ready for connections, by connecting to it and reading the initial
+ * handshake packet of the MySQL client/server protocol which it sends to every new client.
+ *
+ * <p>This does not depend on the wording of any log message, and also notices early if the server
+ * process exits instead of ever becoming ready.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class ReadinessProbe {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadinessProbe.class);
+
+    // First byte of the payload of the initial handshake packet
+    private static final byte PROTOCOL_VERSION_10 = 10;
+
+    private static final long MIN_BACKOFF_MS = 5;
+    private static final long MAX_BACKOFF_MS = 250;
+    private static final long GREETING_TIMEOUT_MS = 1000;
+
+    private ReadinessProbe() {}
+
+    /**
+     * Address to probe: the UNIX socket on Linux and macOS (so that we never mistake another server
+     * which happens to use the same port for ours), and the TCP port on localhost on Windows.
+     *
+     * @param configuration configuration of the DB
+     * @param absoluteSocketFile absolute path of its UNIX socket
+     * @return address to pass to {@link #waitUntilReady(BooleanSupplier, SocketAddress, long)}
+     */
+    static SocketAddress getAddress(DBConfiguration configuration, String absoluteSocketFile) {
+        if (!configuration.isWindows()) {
+            return UnixDomainSocketAddress.of(absoluteSocketFile);
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), configuration.getPort());
+    }
+
+    /**
+     * Waits until the DB server sends a handshake, using a short exponential backoff between
+     * attempts.
+     *
+     * @param isAlive whether the (already started) DB server process is still running
+     * @param address see {@link #getAddress(DBConfiguration, String)}
+     * @param maxWaitMs maximum time to wait
+     * @return true if the DB is ready, false if the process exited or the time ran out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    static boolean waitUntilReady(BooleanSupplier isAlive, SocketAddress address, long maxWaitMs)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        long backoffMs = MIN_BACKOFF_MS;
+        while (true) {
+            if (!isAlive.getAsBoolean()) {
+                return false;
+            }
+            if (isReady(address)) {
+                return true;
+            }
+            long remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0) {
+                return false;
+            }
+            Thread.sleep(Math.min(backoffMs, remainingMs));
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Connects to the given address and checks whether what comes back is a protocol version 10
+     * handshake packet.
+     *
+     * @param address see {@link #getAddress(DBConfiguration, String)}
+     * @return true if a handshake was received, false otherwise (incl. if nothing is listening yet)
+     */
+    static boolean isReady(SocketAddress address) {
+        try (SocketChannel channel =
+                        address instanceof UnixDomainSocketAddress
+                                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                                : SocketChannel.open();
+                Selector selector = Selector.open()) {
+            channel.connect(address);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            // 3 bytes payload length, 1 byte sequence number, then the protocol version
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            long deadline = System.currentTimeMillis() + GREETING_TIMEOUT_MS;
+            while (buffer.hasRemaining()) {
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0 || selector.select(remainingMs) == 0) {
+                    logger.debug("No handshake received from {} in time", address);
+                    return false;
+                }
+                selector.selectedKeys().clear();
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return buffer.get(4) == PROTOCOL_VERSION_10;
+        } catch (IOException e) {
+            // Typically ENOENT or ECONNREFUSED, as long as the server is not listening yet
+            return false;
+        }
+    }
+}
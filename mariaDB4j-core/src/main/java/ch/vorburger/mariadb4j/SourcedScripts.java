@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Record of which scripts (identified by a hash of their content) were already sourced into which
+ * database. This is kept in a file in the data directory, so that it lives exactly as long as the
+ * data which the scripts created. The entries of a database have to be removed when it is dropped.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class SourcedScripts {
+
+    static final String FILE_NAME = ".mariaDB4j-sourced-scripts";
+
+    private final Path file;
+    private Set<String> entries;
+
+    SourcedScripts(File dataDir) {
+        this.file = dataDir.toPath().resolve(FILE_NAME);
+    }
+
+    /**
+     * Hash identifying a script.
+     *
+     * @param script content of the script, which is read fully but not closed
+     * @return hex encoded SHA-256 of the script
+     * @throws IOException if the script could not be read
+     */
+    static String hash(InputStream script) throws IOException {
+        MessageDigest digest = BinariesCache.newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = script.read(buffer)) != -1) {
+            digest.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    synchronized boolean contains(String dbName, String hash) throws IOException {
+        return getEntries().contains(entry(dbName, hash));
+    }
+
+    synchronized void add(String dbName, String hash) throws IOException {
+        String entry = entry(dbName, hash);
+        if (getEntries().add(entry)) {
+            Files.writeString(
+                    file,
+                    entry + "\n",
+                    UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        }
+    }
+
+    /** Forgets the scripts sourced into some databases, e.g. because they were dropped. */
+    synchronized void remove(Collection<String> dbNames) throws IOException {
+        Set<String> prefixes = new HashSet<>();
+        for (String dbName : dbNames) {
+            prefixes.add(entry(dbName, ""));
+        }
+        if (getEntries()
+                .removeIf(
+                        entry -> prefixes.contains(entry.substring(0, entry.indexOf('\t') + 1)))) {
+            Files.write(file, entries, UTF_8);
+        }
+    }
+
+    private Set<String> getEntries() throws IOException {
+        if (entries == null) {
+            entries = new HashSet<>();
+            try {
+                entries.addAll(Files.readAllLines(file, UTF_8));
+            } catch (NoSuchFileException e) {
+                // Nothing sourced yet
+            }
+        }
+        return entries;
+    }
+
+    private static String entry(String dbName, String hash) {
+        return (dbName != null ? dbName : "") + "\t" + hash;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an SQL script into statements the way the mysql command line client does: statements end
+ * with the current delimiter (";" unless changed by a <code>DELIMITER</code> line), which is not
+ * recognized inside quoted strings, identifiers and comments. Comments are dropped, except for
+ * executable <code>/*! ... *&#47;</code> and <code>/*M! ... *&#47;</code> ones, which the server
+ * interprets.
+ *
+ * <p>The script is read incrementally, so memory use only depends on the size of the longest
+ * statement, not on the size of the script.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class SqlScriptSplitter {
+
+    private static final String DEFAULT_DELIMITER = ";";
+    private static final String DELIMITER_COMMAND = "delimiter";
+    private static final int MAX_INDENT = 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private String delimiter = DEFAULT_DELIMITER;
+    private boolean isStartOfLine = true;
+
+    /**
+     * Constructor.
+     *
+     * @param reader script to split; it is read as needed, but not closed
+     */
+    SqlScriptSplitter(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Splits a script which already is in memory, e.g. for tests.
+     *
+     * @param script SQL script, possibly containing <code>DELIMITER</code> lines
+     * @return statements, without their delimiter, and without empty ones
+     */
+    static List<String> split(String script) {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script));
+        List<String> statements = new ArrayList<>();
+        try {
+            String statement;
+            while ((statement = splitter.next()) != null) {
+                statements.add(statement);
+            }
+        } catch (IOException e) {
+            // A StringReader does not actually ever throw an IOException
+            throw new UncheckedIOException(e);
+        }
+        return statements;
+    }
+
+    /**
+     * Reads the next statement.
+     *
+     * @return next statement, without its delimiter; or null if there are no more
+     * @throws IOException if reading the script failed
+     */
+    String next() throws IOException {
+        StringBuilder statement = new StringBuilder();
+        boolean hasContent = false;
+        int c;
+        while ((c = peek(0)) >= 0) {
+            if (isStartOfLine && !hasContent && isDelimiterCommand()) {
+                readDelimiterCommand();
+            } else if (c == '\'' || c == '"' || c == '`') {
+                readQuoted(statement, (char) c);
+                hasContent = true;
+            } else if (c == '#' || (c == '-' && isDashDashComment())) {
+                skipLine();
+                // like a new line, e.g. in SELECT 1# comment\nFROM t
+                statement.append('\n');
+            } else if (c == '/' && peek(1) == '*') {
+                if (peek(2) == '!' || (peek(2) == 'M' && peek(3) == '!')) {
+                    readComment(statement);
+                    hasContent = true;
+                } else {
+                    readComment(null);
+                    // like a space, e.g. in SELECT/* comment */1
+                    statement.append(' ');
+                }
+            } else if (startsWithDelimiter()) {
+                skip(delimiter.length());
+                if (hasContent) {
+                    return statement.toString().trim();
+                }
+                statement.setLength(0);
+            } else {
+                statement.append(read());
+                hasContent |= !Character.isWhitespace(c);
+            }
+        }
+        return hasContent ? statement.toString().trim() : null;
+    }
+
+    private boolean isDelimiterCommand() throws IOException {
+        int i = 0;
+        while (i < MAX_INDENT && isSpaceOrTab(peek(i))) {
+            i++;
+        }
+        for (int j = 0; j < DELIMITER_COMMAND.length(); j++, i++) {
+            int c = peek(i);
+            if (c < 0 || Character.toLowerCase((char) c) != DELIMITER_COMMAND.charAt(j)) {
+                return false;
+            }
+        }
+        return isSpaceOrTab(peek(i));
+    }
+
+    private void readDelimiterCommand() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = peek(0)) >= 0 && c != '\n') {
+            line.append(read());
+        }
+        skip(1);
+        // The client rejects a DELIMITER without an argument, we just ignore it
+        String newDelimiter = line.toString().trim().substring(DELIMITER_COMMAND.length()).trim();
+        if (!newDelimiter.isEmpty()) {
+            delimiter = newDelimiter;
+        }
+    }
+
+    private void readQuoted(StringBuilder statement, char quote) throws IOException {
+        statement.append(read());
+        int c;
+        while ((c = peek(0)) >= 0) {
+            statement.append(read());
+            if (c == '\\' && quote != '`') {
+                if (peek(0) >= 0) {
+                    statement.append(read());
+                }
+            } else if (c == quote) {
+                // a doubled quote is an escaped quote, not the end
+                if (peek(0) != quote) {
+                    return;
+                }
+                statement.append(read());
+            }
+        }
+    }
+
+    private void readComment(StringBuilder statement) throws IOException {
+        // the opening "/*"
+        append(statement, read());
+        append(statement, read());
+        int c;
+        while ((c = peek(0)) >= 0) {
+            append(statement, read());
+            if (c == '*' && peek(0) == '/') {
+                append(statement, read());
+                return;
+            }
+        }
+    }
+
+    private boolean isDashDashComment() throws IOException {
+        // "--" only starts a comment if followed by whitespace (or the end), else e.g. 1--1 is 2
+        int next = peek(2);
+        return peek(1) == '-' && (next < 0 || Character.isWhitespace(next));
+    }
+
+    private boolean startsWithDelimiter() throws IOException {
+        for (int i = 0; i < delimiter.length(); i++) {
+            if (peek(i) != delimiter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = peek(0)) >= 0) {
+            read();
+            if (c == '\n') {
+                return;
+            }
+        }
+    }
+
+    private static void append(StringBuilder statement, char c) {
+        if (statement != null) {
+            statement.append(c);
+        }
+    }
+
+    private static boolean isSpaceOrTab(int c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /** Returns the character at the given offset from the current position, or -1 at the end. */
+    private int peek(int offset) throws IOException {
+        if (offset >= buffer.length) {
+            throw new IOException("Delimiter too long: " + delimiter.length());
+        }
+        while (position + offset >= limit) {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return -1;
+            }
+            limit += read;
+        }
+        return buffer[position + offset];
+    }
+
+    private char read() throws IOException {
+        peek(0);
+        char c = buffer[position++];
+        isStartOfLine = c == '\n';
+        return c;
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count && peek(0) >= 0; i++) {
+            read();
+        }
+    }
+}
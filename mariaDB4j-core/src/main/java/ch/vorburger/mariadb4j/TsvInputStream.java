@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * InputStream of rows in the (default) format of LOAD DATA INFILE, i.e. tab separated, with
+ * backslash escapes, and \N for NULL, encoded as UTF-8. The rows are only encoded while they are
+ * read, so that even huge numbers of them never have to be in memory at the same time.
+ *
+ * @author Michael Vorburger
+ */
+/* Intentionally package private, not public */
+final class TsvInputStream extends InputStream {
+
+    private static final int MIN_CHUNK_LENGTH = 64 * 1024;
+
+    private final Iterator<Object[]> rows;
+    private final StringBuilder chunk = new StringBuilder();
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    TsvInputStream(Iterator<Object[]> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length && fill()) {
+            int n = Math.min(length - count, buffer.length - position);
+            System.arraycopy(buffer, position, bytes, offset + count, n);
+            position += n;
+            count += n;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Encodes the next rows, if everything encoded so far has already been read.
+     *
+     * @return false if there is nothing more to read
+     */
+    private boolean fill() {
+        if (position < buffer.length) {
+            return true;
+        }
+        chunk.setLength(0);
+        while (chunk.length() < MIN_CHUNK_LENGTH && rows.hasNext()) {
+            append(rows.next());
+        }
+        buffer = chunk.toString().getBytes(UTF_8);
+        position = 0;
+        return buffer.length > 0;
+    }
+
+    private void append(Object[] row) {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) {
+                chunk.append('\t');
+            }
+            Object value = row[i];
+            if (value == null) {
+                chunk.append("\\N");
+            } else if (value instanceof Boolean bool) {
+                chunk.append(bool ? '1' : '0');
+            } else if (value instanceof byte[]) {
+                throw new IllegalArgumentException("byte[] values are not supported");
+            } else {
+                appendEscaped(value.toString());
+            }
+        }
+        chunk.append('\n');
+    }
+
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> chunk.append("\\\\");
+                case '\t' -> chunk.append("\\t");
+                case '\n' -> chunk.append("\\n");
+                case '\r' -> chunk.append("\\r");
+                case '\0' -> chunk.append("\\0");
+                default -> chunk.append(c);
+            }
+        }
+    }
+}
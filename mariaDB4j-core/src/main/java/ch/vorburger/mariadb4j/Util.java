@@ -20,16 +20,45 @@
 package ch.vorburger.mariadb4j;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.ClassUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * File utilities.
@@ -41,6 +70,10 @@ public class Util {
 
     private static final Logger logger = LoggerFactory.getLogger(Util.class);
 
+    /** Permissions of files copied from resources, which unlike JAR entries have none. */
+    private static final Set<PosixFilePermission> RESOURCE_PERMISSIONS =
+            PosixFilePermissions.fromString("rw-r--r--");
+
     private Util() {}
 
     /**
@@ -90,6 +123,25 @@ public class Util {
                 && directory.getAbsolutePath().startsWith(SystemUtils.JAVA_IO_TMPDIR);
     }
 
+    /**
+     * Check for temporary directory name, including the RAM disk directory of a configuration.
+     *
+     * @param directory directory name
+     * @param configuration configuration of the DB which the directory belongs to
+     * @return true if the passed directory name starts with the system temporary directory name, or
+     *     with the {@link DBConfiguration#getRamDiskDir()}.
+     */
+    public static boolean isTemporaryDirectory(File directory, DBConfiguration configuration) {
+        File ramDiskDir = configuration.getRamDiskDir();
+        return isTemporaryDirectory(directory)
+                || (directory != null
+                        && ramDiskDir != null
+                        && directory
+                                .toPath()
+                                .toAbsolutePath()
+                                .startsWith(ramDiskDir.toPath().toAbsolutePath()));
+    }
+
     public static void forceExecutable(File executableFile) throws IOException {
         if (executableFile.exists()) {
             if (!executableFile.canExecute()) {
@@ -110,6 +162,13 @@ public class Util {
     /**
      * Extract files from a package on the classpath into a directory.
      *
+     * <p>If the package is (only) found in JARs on the file system, which is the case for the
+     * <code>mariaDB4j-db-*</code> artifacts in most setups, then each such JAR is opened only once
+     * and its entries are copied sequentially, including their POSIX file permissions (if the
+     * target file system supports them). Otherwise, e.g. when running from exploded directories in
+     * an IDE or from a nested JAR of a Spring Boot application, each resource is copied
+     * individually.
+     *
      * @param packagePath e.g. "com/stuff" (always forward slash not backslash, never dot)
      * @param toDir directory to extract to
      * @return int the number of files copied
@@ -118,12 +177,74 @@ public class Util {
      */
     public static int extractFromClasspathToFile(String packagePath, File toDir)
             throws IOException {
+        return extractFromClasspathToFile(packagePath, toDir, 1);
+    }
+
+    /**
+     * Extract files from a package on the classpath into a directory, using several threads.
+     *
+     * <p>Entries of JARs are then extracted by a pool of (at most) the given number of threads,
+     * largest first, so that extracting a few big files (like the DB server binary) does not happen
+     * last on a single thread. Each file (also those copied from exploded directories or nested
+     * JARs) is first written to a temporary file and then atomically moved into place, which makes
+     * it safe for several processes to concurrently extract into the same directory.
+     *
+     * @param packagePath e.g. "com/stuff" (always forward slash not backslash, never dot)
+     * @param toDir directory to extract to
+     * @param threads maximum number of threads to use, 1 to extract on the calling thread
+     * @return int the number of files copied
+     * @throws java.io.IOException if something goes wrong, including if nothing was found on
+     *     classpath
+     */
+    public static int extractFromClasspathToFile(String packagePath, File toDir, int threads)
+            throws IOException {
+        return extractFromClasspathToFile(packagePath, toDir, threads, null);
+    }
+
+    /**
+     * Extract files from a package on the classpath into a directory, see {@link
+     * #extractFromClasspathToFile(String, File, int)}, and record which files that are.
+     *
+     * @param packagePath e.g. "com/stuff" (always forward slash not backslash, never dot)
+     * @param toDir directory to extract to
+     * @param threads maximum number of threads to use, 1 to extract on the calling thread
+     * @param entries if not null, gets the path (relative to toDir, with forward slashes) and size
+     *     of every file of the package put into it, whether it was copied or already there; must be
+     *     thread safe if threads is more than 1
+     * @return int the number of files copied
+     * @throws java.io.IOException if something goes wrong, including if nothing was found on
+     *     classpath
+     */
+    static int extractFromClasspathToFile(
+            String packagePath, File toDir, int threads, Map<String, Long> entries)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, but is " + threads);
+        }
+        List<Path> jars = findJarsOnFileSystem(packagePath);
+        if (jars.isEmpty()) {
+            return extractFromClasspathResourcesToFile(packagePath, toDir, entries);
+        }
+        int counter = 0;
+        for (Path jar : jars) {
+            counter += extractFromJarToFile(jar, packagePath, toDir, threads, entries);
+        }
+        if (counter > 0) {
+            Object[] info = {counter, jars, toDir};
+            logger.info("Unpacked {} files from {} to {}", info);
+        }
+        return counter;
+    }
+
+    private static int extractFromClasspathResourcesToFile(
+            String packagePath, File toDir, Map<String, Long> entries) throws IOException {
         String locationPattern = "classpath*:" + packagePath + "/**";
         ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
         Resource[] resources = resourcePatternResolver.getResources(locationPattern);
         if (resources.length == 0) {
             throw new IOException("Nothing found at " + locationPattern);
         }
+        byte[] buffer = new byte[1024 * 1024];
         int counter = 0;
         for (Resource resource : resources) {
             if (resource.isReadable()) { // Skip hidden or system files
@@ -134,8 +255,22 @@ public class Util {
                     path = path.substring(p);
                     final File targetFile = new File(toDir, path);
                     long len = resource.contentLength();
+                    if (entries != null) {
+                        entries.put(path.startsWith("/") ? path.substring(1) : path, len);
+                    }
                     if (!targetFile.exists() || targetFile.length() != len) { // Only copy new files
-                        tryN(5, 500, () -> FileUtils.copyURLToFile(url, targetFile));
+                        tryN(
+                                5,
+                                500,
+                                () -> {
+                                    try (InputStream in = url.openStream()) {
+                                        copyToFileAtomically(
+                                                in,
+                                                targetFile.toPath(),
+                                                buffer,
+                                                RESOURCE_PERMISSIONS);
+                                    }
+                                });
                         counter++;
                     }
                 }
@@ -148,6 +283,178 @@ public class Util {
         return counter;
     }
 
+    /**
+     * Find the JARs containing the given package.
+     *
+     * @return JARs, or an empty list if the package is not found or (also) found anywhere else than
+     *     in a JAR directly on the file system
+     */
+    static List<Path> findJarsOnFileSystem(String packagePath) throws IOException {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        if (classLoader == null) {
+            return List.of();
+        }
+        List<Path> jars = new ArrayList<>();
+        for (URL root : Collections.list(classLoader.getResources(packagePath))) {
+            // This does not actually open the JAR yet
+            URLConnection connection = root.openConnection();
+            if (!(connection instanceof JarURLConnection jarConnection)) {
+                return List.of();
+            }
+            URL jarFileURL = jarConnection.getJarFileURL();
+            if (!"file".equals(jarFileURL.getProtocol())) {
+                return List.of();
+            }
+            try {
+                jars.add(Paths.get(jarFileURL.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        return jars;
+    }
+
+    private static int extractFromJarToFile(
+            Path jar, String packagePath, File toDir, int threads, Map<String, Long> extracted)
+            throws IOException {
+        try (FileSystem jarFileSystem =
+                FileSystems.newFileSystem(jar, Map.of("enablePosixFileAttributes", "true"))) {
+            Path root = jarFileSystem.getPath(packagePath);
+            List<Path> entries = new ArrayList<>();
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path entry : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(entry)) { // Skip directories
+                        entries.add(entry);
+                    }
+                }
+            }
+            if (threads == 1 || entries.size() < 2) {
+                byte[] buffer = new byte[1024 * 1024];
+                int counter = 0;
+                for (Path entry : entries) {
+                    if (extractJarEntryToFile(root, entry, toDir, buffer, extracted)) {
+                        counter++;
+                    }
+                }
+                return counter;
+            }
+            return extractJarEntriesToFileInParallel(root, entries, toDir, threads, extracted);
+        }
+    }
+
+    private static int extractJarEntriesToFileInParallel(
+            Path root, List<Path> entries, File toDir, int threads, Map<String, Long> extracted)
+            throws IOException {
+        // Largest first, so that a big file is never the only thing left to do at the end
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path entry : entries) {
+            sizes.put(entry, Files.size(entry));
+        }
+        List<Path> largestFirst = new ArrayList<>(entries);
+        largestFirst.sort(Comparator.comparing(sizes::get).reversed());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, entries.size()));
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Path entry : largestFirst) {
+                futures.add(
+                        executor.submit(
+                                () ->
+                                        extractJarEntryToFile(
+                                                root,
+                                                entry,
+                                                toDir,
+                                                new byte[1024 * 1024],
+                                                extracted)));
+            }
+            int counter = 0;
+            for (Future<Boolean> future : futures) {
+                if (future.get()) {
+                    counter++;
+                }
+            }
+            return counter;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Extracting from " + root + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting from " + root);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Extract a single JAR entry, unless a file of the same size already exists.
+     *
+     * @return true if the file was copied, false if it was skipped
+     */
+    private static boolean extractJarEntryToFile(
+            Path root, Path entry, File toDir, byte[] buffer, Map<String, Long> extracted)
+            throws IOException {
+        String relativePath = root.relativize(entry).toString();
+        Path targetFile = toDir.toPath().resolve(relativePath);
+        long size = Files.size(entry);
+        if (extracted != null) {
+            extracted.put(relativePath, size);
+        }
+        if (Files.exists(targetFile) && Files.size(targetFile) == size) { // Only copy new files
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(entry)) {
+            copyToFileAtomically(
+                    in,
+                    targetFile,
+                    buffer,
+                    isPosix() ? Files.getPosixFilePermissions(entry) : RESOURCE_PERMISSIONS);
+        }
+        return true;
+    }
+
+    /**
+     * Copies to a file, by first writing a temporary file next to it, and then atomically moving
+     * that into place. So a concurrent extraction by another process (or thread) never sees a
+     * partially written file of the same size.
+     *
+     * @param permissions POSIX file permissions of the file (if the file system supports them)
+     */
+    private static void copyToFileAtomically(
+            InputStream in, Path targetFile, byte[] buffer, Set<PosixFilePermission> permissions)
+            throws IOException {
+        Path targetDir = targetFile.getParent();
+        Files.createDirectories(targetDir);
+        Path tempFile =
+                Files.createTempFile(targetDir, targetFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                IOUtils.copyLarge(in, out, buffer);
+            }
+            if (isPosix()) {
+                Set<PosixFilePermission> tempPermissions =
+                        EnumSet.noneOf(PosixFilePermission.class);
+                tempPermissions.addAll(permissions);
+                // Make sure we can always overwrite it again later, whatever the JAR says
+                tempPermissions.add(PosixFilePermission.OWNER_READ);
+                tempPermissions.add(PosixFilePermission.OWNER_WRITE);
+                Files.setPosixFilePermissions(tempFile, tempPermissions);
+            }
+            Files.move(
+                    tempFile,
+                    targetFile,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
     @SuppressWarnings("null")
     private static void tryN(int n, long msToWait, Procedure<IOException> procedure)
             throws IOException {
@@ -171,7 +478,7 @@ public class Util {
         throw lastIOException;
     }
 
-    private interface Procedure<E extends Throwable> {
+    interface Procedure<E extends Throwable> {
 
         void apply() throws E;
     }
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static ch.vorburger.mariadb4j.MemoryBudget.MB;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Tests {@link AutoSizing}. */
+public class AutoSizingTest {
+
+    @TempDir Path root;
+
+    @Test
+    public void cgroupV2() throws IOException {
+        write("cgroup.controllers", "cpu memory");
+        write("memory.max", "max");
+        write("cpu.max", "max 100000");
+        write("pod/memory.max", String.valueOf(4096 * MB));
+        write("pod/cpu.max", "400000 100000");
+        write("pod/worker/memory.max", "max");
+        write("pod/worker/cpu.max", "max 100000");
+        AutoSizing autoSizing = new AutoSizing(root, write("self", "0::/pod/worker\n"));
+        assertThat(autoSizing.getMemoryLimit().getAsLong()).isEqualTo(4096 * MB);
+        assertThat(autoSizing.getCpuLimit().getAsDouble()).isEqualTo(4.0);
+
+        // (4096 - 1024) * 3/4 / 4 - 128 = 448
+        assertThat(autoSizing.getArgs(4, 1024 * MB, true))
+                .containsAtLeast(
+                        "--innodb_buffer_pool_size=224M",
+                        "--innodb_read_io_threads=1",
+                        "--innodb_purge_threads=1");
+    }
+
+    @Test
+    public void cgroupV1() throws IOException {
+        write("memory/memory.limit_in_bytes", "9223372036854771712");
+        write("memory/docker/abc/memory.limit_in_bytes", String.valueOf(2048 * MB));
+        write("cpu/cpu.cfs_quota_us", "-1");
+        write("cpu/cpu.cfs_period_us", "100000");
+        write("cpu/docker/abc/cpu.cfs_quota_us", "150000");
+        write("cpu/docker/abc/cpu.cfs_period_us", "100000");
+        write("unified/cgroup.controllers", "");
+        Path self = write("self", "4:memory:/docker/abc\n2:cpu,cpuacct:/docker/abc\n0::/abc\n");
+        AutoSizing autoSizing = new AutoSizing(root, self);
+        assertThat(autoSizing.getMemoryLimit().getAsLong()).isEqualTo(2048 * MB);
+        assertThat(autoSizing.getCpuLimit().getAsDouble()).isEqualTo(1.5);
+    }
+
+    @Test
+    public void noLimits() throws IOException {
+        write("memory/memory.limit_in_bytes", "9223372036854771712");
+        write("cpu/cpu.cfs_quota_us", "-1");
+        AutoSizing autoSizing = new AutoSizing(root, write("self", "4:memory:/\n1:cpu:/\n"));
+        assertThat(autoSizing.getMemoryLimit().isPresent()).isFalse();
+        assertThat(autoSizing.getCpuLimit().isPresent()).isFalse();
+        assertThat(autoSizing.getArgs(1, 0, true)).isNotEmpty();
+    }
+
+    @Test
+    public void tooManyInstancesGetTheSmallestBudget() throws IOException {
+        write("cgroup.controllers", "cpu memory");
+        write("memory.max", String.valueOf(1024 * MB));
+        AutoSizing autoSizing = new AutoSizing(root, write("self", "0::/\n"));
+        assertThat(autoSizing.getArgs(32, 256 * MB, true))
+                .contains("--innodb_buffer_pool_size=" + MemoryBudget.MIN_BYTES / 2 / MB + "M");
+    }
+
+    @Test
+    public void onlyThreadsAreSizedWithExplicitMemoryBudget() throws IOException {
+        write("cgroup.controllers", "cpu memory");
+        write("memory.max", String.valueOf(1024 * MB));
+        write("cpu.max", "200000 100000");
+        AutoSizing autoSizing = new AutoSizing(root, write("self", "0::/\n"));
+        assertThat(autoSizing.getArgs(2, 256 * MB, false))
+                .containsExactly(
+                        "--innodb_read_io_threads=1",
+                        "--innodb_write_io_threads=1",
+                        "--innodb_purge_threads=1");
+    }
+
+    private Path write(String file, String content) throws IOException {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+}
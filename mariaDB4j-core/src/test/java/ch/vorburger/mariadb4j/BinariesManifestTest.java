@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/** Tests {@link BinariesManifest}. */
+public class BinariesManifestTest {
+
+    @TempDir File baseDir;
+
+    @Test
+    public void matchingManifestIsValid() throws IOException {
+        assertThat(BinariesManifest.isValid(baseDir, "a")).isFalse();
+        assertThat(BinariesManifest.write(baseDir, "a", unpack())).isEqualTo(5);
+        assertThat(BinariesManifest.isValid(baseDir, "a")).isTrue();
+        assertThat(BinariesManifest.isValid(baseDir, "b")).isFalse();
+    }
+
+    @Test
+    public void missingFileInvalidatesManifest() throws IOException {
+        BinariesManifest.write(baseDir, "a", unpack());
+        Files.delete(baseDir.toPath().resolve("bin/mariadbd"));
+        assertThat(BinariesManifest.isValid(baseDir, "a")).isFalse();
+    }
+
+    @Test
+    public void changedFileInvalidatesManifest() throws IOException {
+        BinariesManifest.write(baseDir, "a", unpack());
+        Files.writeString(baseDir.toPath().resolve("share/x.sql"), "", UTF_8);
+        assertThat(BinariesManifest.isValid(baseDir, "a")).isFalse();
+    }
+
+    private Map<String, Long> unpack() throws IOException {
+        Path server = baseDir.toPath().resolve("bin/mariadbd");
+        Files.createDirectories(server.getParent());
+        Files.writeString(server, "abcd", UTF_8);
+        Path script = baseDir.toPath().resolve("share/x.sql");
+        Files.createDirectories(script.getParent());
+        Files.writeString(script, "y", UTF_8);
+        return Map.of("bin/mariadbd", 4L, "share/x.sql", 1L);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/** Tests {@link ClientQueryResult}. */
+public class ClientQueryResultTest {
+
+    private static final String HEADER =
+            "<?xml version=\"1.0\"?>\n\n<resultset statement=\"SELECT &lt;&gt; 'x'\n\""
+                    + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">";
+
+    @Test
+    public void valuesAreFields() throws IOException {
+        ClientQueryResult.XmlRows rows =
+                rows(
+                        "\n  <row>\n\t<field name=\"a\">1</field>\n\t<field name=\"b\">a b</field>"
+                                + "\n\t<field name=\"c\"></field>\n  </row>\n\n  <row>"
+                                + "\n\t<field name=\"a\">2</field>\n\t<field name=\"b\">c</field>"
+                                + "\n\t<field name=\"c\">d</field>\n  </row>\n</resultset>\n");
+        assertThat(rows.next()).asList().containsExactly("1", "a b", "").inOrder();
+        assertThat(rows.next()).asList().containsExactly("2", "c", "d").inOrder();
+        assertThat(rows.next()).isNull();
+    }
+
+    @Test
+    public void specialCharactersAreUnescaped() throws IOException {
+        ClientQueryResult.XmlRows rows =
+                rows(
+                        "\n  <row>\n\t<field name=\"a&lt;\">a\tb\nc\\N\r&lt;&amp;&gt;&quot;&#65;</field>"
+                                + "\n  </row>\n</resultset>\n");
+        assertThat(rows.next()).asList().containsExactly("a\tb\nc\\N\r<&>\"A");
+    }
+
+    @Test
+    public void nullIsNotTheStringNull() throws IOException {
+        ClientQueryResult.XmlRows rows =
+                rows(
+                        "\n  <row>\n\t<field name=\"a\" xsi:nil=\"true\" />"
+                                + "\n\t<field name=\"b\">NULL</field>\n  </row>\n</resultset>\n");
+        assertThat(rows.next()).asList().containsExactly(null, "NULL").inOrder();
+    }
+
+    @Test
+    public void noResult() throws IOException {
+        assertThat(rows("</resultset>\n").next()).isNull();
+        assertThat(new ClientQueryResult.XmlRows(new StringReader("")).next()).isNull();
+    }
+
+    @Test
+    public void truncatedRowFails() {
+        ClientQueryResult.XmlRows rows = rows("\n  <row>\n\t<field name=\"a\">1</field>");
+        assertThrows(IOException.class, rows::next);
+    }
+
+    private static ClientQueryResult.XmlRows rows(String xml) {
+        return new ClientQueryResult.XmlRows(new StringReader(HEADER + xml));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/** Tests {@link MemoryBudget}. */
+public class MemoryBudgetTest {
+
+    @Test
+    public void smallBudget() {
+        assertThat(MemoryBudget.getArgs(64 * MemoryBudget.MB))
+                .containsAtLeast(
+                        "--innodb_buffer_pool_size=32M",
+                        "--innodb_log_buffer_size=2M",
+                        "--aria_pagecache_buffer_size=4M",
+                        "--key_buffer_size=1M",
+                        "--table_open_cache=256",
+                        "--max_connections=64",
+                        "--performance_schema=OFF");
+    }
+
+    @Test
+    public void largeBudgetKeepsServerDefaults() {
+        assertThat(MemoryBudget.getArgs(4096 * MemoryBudget.MB))
+                .containsAtLeast(
+                        "--innodb_buffer_pool_size=2048M",
+                        "--innodb_log_buffer_size=16M",
+                        "--aria_pagecache_buffer_size=128M",
+                        "--key_buffer_size=64M",
+                        "--max_connections=151");
+    }
+
+    @Test
+    public void tooSmallBudget() {
+        assertThrows(IllegalArgumentException.class, () -> MemoryBudget.getArgs(MemoryBudget.MB));
+    }
+}
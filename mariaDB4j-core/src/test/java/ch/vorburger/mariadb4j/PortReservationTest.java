@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+
+/** Tests {@link PortReservation}. */
+public class PortReservationTest {
+
+    @TempDir File lockDir;
+
+    @Test
+    public void reservedPortsAreNotReservedAgainUntilReleased() throws IOException {
+        int from = freePort();
+        PortReservation first = new PortReservation(lockDir, from, from + 1);
+        PortReservation second = new PortReservation(lockDir, from, from + 1);
+        assertThat(first.getPort()).isNotEqualTo(second.getPort());
+        assertThrows(
+                IllegalStateException.class, () -> new PortReservation(lockDir, from, from + 1));
+
+        second.release();
+        PortReservation third = new PortReservation(lockDir, from, from + 1);
+        assertThat(third.getPort()).isEqualTo(second.getPort());
+
+        // The released port was taken meanwhile, so the second one has to move, once it can
+        assertThrows(IllegalStateException.class, second::ensureReserved);
+        first.release();
+        second.ensureReserved();
+        assertThat(second.getPort()).isEqualTo(first.getPort());
+    }
+
+    @Test
+    public void moveToAnotherPortReleasesThePreviousOne() throws IOException {
+        int from = freePort();
+        PortReservation reservation = new PortReservation(lockDir, from, from + 1);
+        int previousPort = reservation.getPort();
+        reservation.moveToAnotherPort();
+        assertThat(reservation.getPort()).isNotEqualTo(previousPort);
+        assertThat(new PortReservation(lockDir, previousPort, previousPort).getPort())
+                .isEqualTo(previousPort);
+    }
+
+    @Test
+    public void probingPortReservedInThisJvmKeepsItsLock(@TempDir File probeDir)
+            throws IOException, InterruptedException {
+        int from = freePort();
+        PortReservation reservation = new PortReservation(lockDir, from, from);
+        try {
+            assertThrows(
+                    IllegalStateException.class, () -> new PortReservation(lockDir, from, from));
+            // Another process, because this JVM would not notice its own lock having been lost
+            assertThat(isLockedForOtherProcess(new File(lockDir, from + ".lock"), probeDir))
+                    .isTrue();
+        } finally {
+            reservation.release();
+        }
+    }
+
+    @Test
+    public void portsInUseAreSkippedAndLeft() throws IOException {
+        try (ServerSocket other = new ServerSocket()) {
+            other.setReuseAddress(true);
+            other.bind(new InetSocketAddress(0));
+            int port = other.getLocalPort();
+            PortReservation reservation = new PortReservation(lockDir, port, port + 1);
+            assertThat(reservation.getPort()).isEqualTo(port + 1);
+        }
+    }
+
+    @Test
+    public void builderReservesPortFromRangeAndNamesInstanceIndependently() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setPortRange(20000, 29999).setPortLockDir(lockDir);
+        DBConfiguration config = builder.build();
+        PortReservation reservation = builder.getPortReservation();
+        try {
+            assertThat(config.getPort()).isAtLeast(20000);
+            assertThat(config.getPort()).isAtMost(29999);
+            assertThat(builder.getPort()).isEqualTo(config.getPort());
+            assertThat(new File(lockDir, config.getPort() + ".lock").exists()).isTrue();
+
+            // Another DB may reserve the port after a move or release, so it's not in the names
+            String port = String.valueOf(config.getPort());
+            assertThat(config.getDataDir().getName()).isNotEqualTo(port);
+            assertThat(config.getTmpDir().getName()).isNotEqualTo(port);
+            assertThat(new File(config.getSocket()).getName())
+                    .isNotEqualTo("MariaDB4j." + port + ".sock");
+        } finally {
+            reservation.release();
+        }
+    }
+
+    private static boolean isLockedForOtherProcess(File lockFile, File probeDir)
+            throws IOException, InterruptedException {
+        File probe = new File(probeDir, "Probe.java");
+        Files.writeString(
+                probe.toPath(),
+                """
+                import java.nio.channels.FileChannel;
+                import java.nio.file.Path;
+                import java.nio.file.StandardOpenOption;
+
+                public class Probe {
+                    public static void main(String[] args) throws Exception {
+                        try (FileChannel channel =
+                                FileChannel.open(Path.of(args[0]), StandardOpenOption.WRITE)) {
+                            System.exit(channel.tryLock() == null ? 0 : 1);
+                        }
+                    }
+                }
+                """,
+                UTF_8);
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process =
+                new ProcessBuilder(java, probe.getPath(), lockFile.getPath()).inheritIO().start();
+        return process.waitFor() == 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/** Tests {@link ReadinessProbe}. */
+public class ReadinessProbeTest {
+
+    @Test
+    public void notReadyIfNothingListens() throws IOException {
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        assertThat(ReadinessProbe.isReady(localhost(port))).isFalse();
+    }
+
+    @Test
+    public void readyOnHandshake() throws Exception {
+        // 3 bytes payload length, sequence number 0, protocol version 10, server version...
+        assertThat(isReadyIfServerSends(new byte[] {9, 0, 0, 0, 10, '1', '1', '.', '4', 0}))
+                .isTrue();
+    }
+
+    @Test
+    public void notReadyOnErrorPacket() throws Exception {
+        assertThat(isReadyIfServerSends(new byte[] {3, 0, 0, 0, (byte) 0xFF, 0x10, 0x04}))
+                .isFalse();
+    }
+
+    @Test
+    public void notReadyIfProcessExited() throws Exception {
+        assertThat(ReadinessProbe.waitUntilReady(() -> false, localhost(1), 10_000)).isFalse();
+    }
+
+    private static boolean isReadyIfServerSends(byte[] greeting) throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Thread server =
+                    new Thread(
+                            () -> {
+                                try (Socket socket = serverSocket.accept();
+                                        OutputStream out = socket.getOutputStream()) {
+                                    out.write(greeting);
+                                } catch (IOException e) {
+                                    throw new IllegalStateException(e);
+                                }
+                            });
+            server.start();
+            boolean isReady = ReadinessProbe.isReady(localhost(serverSocket.getLocalPort()));
+            server.join();
+            return isReady;
+        }
+    }
+
+    private static InetSocketAddress localhost(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+}
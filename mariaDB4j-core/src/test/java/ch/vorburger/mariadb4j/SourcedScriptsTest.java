@@ -0,0 +1,78 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/** Tests {@link SourcedScripts}. */
+public class SourcedScriptsTest {
+
+    @TempDir File dataDir;
+
+    @Test
+    public void hashIdentifiesContent() throws IOException {
+        assertThat(hash("SELECT 1;")).isEqualTo(hash("SELECT 1;"));
+        assertThat(hash("SELECT 1;")).isNotEqualTo(hash("SELECT 2;"));
+    }
+
+    @Test
+    public void sourcedScriptsArePerDatabaseAndPersisted() throws IOException {
+        String hash = hash("CREATE TABLE t (i INT);");
+        SourcedScripts sourcedScripts = new SourcedScripts(dataDir);
+        assertThat(sourcedScripts.contains("db1", hash)).isFalse();
+        sourcedScripts.add("db1", hash);
+        assertThat(sourcedScripts.contains("db1", hash)).isTrue();
+        assertThat(sourcedScripts.contains("db2", hash)).isFalse();
+        assertThat(sourcedScripts.contains(null, hash)).isFalse();
+
+        SourcedScripts reloaded = new SourcedScripts(dataDir);
+        assertThat(reloaded.contains("db1", hash)).isTrue();
+        assertThat(reloaded.contains("db2", hash)).isFalse();
+    }
+
+    @Test
+    public void removedDatabasesAreForgotten() throws IOException {
+        String hash = hash("CREATE TABLE t (i INT);");
+        SourcedScripts sourcedScripts = new SourcedScripts(dataDir);
+        sourcedScripts.add("db1", hash);
+        sourcedScripts.add("db2", hash);
+        sourcedScripts.remove(List.of("db1"));
+        assertThat(sourcedScripts.contains("db1", hash)).isFalse();
+        assertThat(sourcedScripts.contains("db2", hash)).isTrue();
+
+        SourcedScripts reloaded = new SourcedScripts(dataDir);
+        assertThat(reloaded.contains("db1", hash)).isFalse();
+        assertThat(reloaded.contains("db2", hash)).isTrue();
+    }
+
+    private static String hash(String script) throws IOException {
+        return SourcedScripts.hash(new ByteArrayInputStream(script.getBytes(UTF_8)));
+    }
+}
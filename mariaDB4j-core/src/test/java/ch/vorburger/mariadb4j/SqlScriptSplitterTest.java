@@ -0,0 +1,100 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/** Tests {@link SqlScriptSplitter}. */
+public class SqlScriptSplitterTest {
+
+    @Test
+    public void statementsWithAndWithoutTrailingDelimiter() {
+        assertThat(SqlScriptSplitter.split("SELECT 1;\nSELECT\n  2;\n\nSELECT 3"))
+                .containsExactly("SELECT 1", "SELECT\n  2", "SELECT 3")
+                .inOrder();
+    }
+
+    @Test
+    public void delimitersInQuotesAreNotDelimiters() {
+        assertThat(
+                        SqlScriptSplitter.split(
+                                "INSERT INTO t VALUES ('a;b', \"c;\\\"d\", 'e'';f');"
+                                        + "SELECT `x;y` FROM t;"))
+                .containsExactly(
+                        "INSERT INTO t VALUES ('a;b', \"c;\\\"d\", 'e'';f')", "SELECT `x;y` FROM t")
+                .inOrder();
+    }
+
+    @Test
+    public void commentsAreDropped() {
+        assertThat(
+                        SqlScriptSplitter.split(
+                                """
+                                -- a comment; really
+                                # another one;
+                                SELECT /* inline; */ 1;
+                                SELECT 1--1;
+                                /*! SET NAMES utf8 */;"""))
+                .containsExactly("SELECT   1", "SELECT 1--1", "/*! SET NAMES utf8 */")
+                .inOrder();
+    }
+
+    @Test
+    public void delimiterCommand() {
+        assertThat(
+                        SqlScriptSplitter.split(
+                                """
+                                DELIMITER //
+                                CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END//
+                                delimiter ;
+                                CALL p();"""))
+                .containsExactly("CREATE PROCEDURE p() BEGIN SELECT 1; SELECT 2; END", "CALL p()")
+                .inOrder();
+    }
+
+    @Test
+    public void emptyScript() {
+        assertThat(SqlScriptSplitter.split(" ;\n-- nothing\n;")).isEmpty();
+    }
+
+    @Test
+    public void hashCommentDoesNotJoinTokens() {
+        assertThat(SqlScriptSplitter.split("SELECT 1# one\nFROM dual;"))
+                .containsExactly("SELECT 1\nFROM dual");
+    }
+
+    @Test
+    public void streamsStatementsAcrossBufferBoundaries() throws IOException {
+        StringBuilder script = new StringBuilder("DELIMITER $$\n");
+        for (int i = 0; i < 10_000; i++) {
+            script.append("INSERT INTO t VALUES (").append(i).append(", 'a$$b')$$\n");
+        }
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script.toString()));
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(splitter.next()).isEqualTo("INSERT INTO t VALUES (" + i + ", 'a$$b')");
+        }
+        assertThat(splitter.next()).isNull();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/** Tests {@link TsvInputStream}. */
+public class TsvInputStreamTest {
+
+    @Test
+    public void valuesAreEscaped() throws IOException {
+        Iterator<Object[]> rows =
+                List.of(
+                                new Object[] {1, "a\tb\nc\\d", null, true},
+                                new Object[] {2.5, "ä€", "\\N", false})
+                        .iterator();
+        assertThat(IOUtils.toString(new TsvInputStream(rows), UTF_8))
+                .isEqualTo("1\ta\\tb\\nc\\\\d\t\\N\t1\n2.5\tä€\t\\\\N\t0\n");
+    }
+
+    @Test
+    public void manyRowsAreReadInChunks() throws IOException {
+        Iterator<Object[]> rows =
+                IntStream.range(0, 100_000).mapToObj(i -> new Object[] {i, "x"}).iterator();
+        try (InputStream in = new TsvInputStream(rows)) {
+            List<String> lines = IOUtils.readLines(in, UTF_8);
+            assertThat(lines).hasSize(100_000);
+            assertThat(lines.get(99_999)).isEqualTo("99999\tx");
+        }
+    }
+
+    @Test
+    public void noRows() throws IOException {
+        assertThat(new TsvInputStream(List.<Object[]>of().iterator()).read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void bytesAreNotSupported() {
+        Iterator<Object[]> rows = List.<Object[]>of(new Object[] {new byte[] {1}}).iterator();
+        assertThrows(IllegalArgumentException.class, () -> new TsvInputStream(rows).read());
+    }
+}
@@ -47,6 +47,34 @@ public class ClasspathUnpackerTest {
         assertThat(new File(toDir, "CommandLine.class").exists()).isTrue();
     }
 
+    @Test
+    public void testClasspathUnpackerFromJarOnlyCopiesNewFiles() throws IOException {
+        File toDir = new File("target/testUnpack5");
+        FileUtils.deleteDirectory(toDir);
+        int c1 = Util.extractFromClasspathToFile("org/apache/commons/exec", toDir);
+        assertThat(c1).isGreaterThan(0);
+
+        // Now try again - it shouldn't copy anything anymore (optimization)
+        int c2 = Util.extractFromClasspathToFile("org/apache/commons/exec", toDir);
+        assertThat(c2).isEqualTo(0);
+    }
+
+    @Test
+    public void testClasspathUnpackerInParallel() throws IOException {
+        File toDir = new File("target/testUnpack2");
+        FileUtils.deleteDirectory(toDir);
+        int c1 = Util.extractFromClasspathToFile("org/apache/commons/exec", toDir, 4);
+        assertThat(c1)
+                .isEqualTo(
+                        Util.extractFromClasspathToFile(
+                                "org/apache/commons/exec", new File(toDir, "sequential")));
+        assertThat(new File(toDir, "CommandLine.class").exists()).isTrue();
+
+        // Now try again - it shouldn't copy anything anymore (optimization)
+        int c2 = Util.extractFromClasspathToFile("org/apache/commons/exec", toDir, 4);
+        assertThat(c2).isEqualTo(0);
+    }
+
     @Test
     @Disabled
     // Not yet implemented... not really important
@@ -69,6 +97,8 @@ public class ClasspathUnpackerTest {
         assertThat(new File(toDir, "a.txt").exists()).isTrue();
         assertThat(new File(toDir, "b.txt").exists()).isTrue();
         assertThat(new File(toDir, "subdir/c.txt").exists()).isTrue();
+        // Their temporary files were all moved into place
+        assertThat(toDir.list()).asList().containsExactly("a.txt", "b.txt", "subdir");
 
         // Now try again - it shouldn't copy anything anymore (optimization)
         int c2 = Util.extractFromClasspathToFile("test", toDir);
@@ -23,10 +23,14 @@ import static com.google.common.truth.Truth.assertThat;
 
 import ch.vorburger.mariadb4j.DBConfiguration;
 import ch.vorburger.mariadb4j.DBConfiguration.Executable;
+import ch.vorburger.mariadb4j.DBConfiguration.Profile;
 import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import ch.vorburger.mariadb4j.DBLifecycleListener;
 import ch.vorburger.mariadb4j.Util;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
 import java.io.File;
 import java.io.IOException;
@@ -164,6 +168,16 @@ public class DBConfigurationBuilderTest {
         assertThat(config.isDeletingTemporaryBaseAndDataDirsOnShutdown()).isTrue();
     }
 
+    @Test
+    public void performanceProfile() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        assertThat(builder.build().getPerformanceProfile()).isEqualTo(Profile.DURABLE);
+        builder = DBConfigurationBuilder.newBuilder();
+        builder.setPerformanceProfile(Profile.FAST_EPHEMERAL);
+        DBConfigurationBuilder clone = DBConfigurationBuilder.newBuilder(builder);
+        assertThat(clone.build().getPerformanceProfile()).isEqualTo(Profile.FAST_EPHEMERAL);
+    }
+
     @Test
     public void keepsTemporaryDirectories() {
         DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
@@ -172,6 +186,50 @@ public class DBConfigurationBuilderTest {
         assertThat(config.isDeletingTemporaryBaseAndDataDirsOnShutdown()).isFalse();
     }
 
+    @Test
+    public void sharedBinariesCacheIsUsedAsBaseAndLibDir() throws IOException {
+        Path cacheDir = Files.createTempDirectory("MariaDB4jCache");
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setUsingSharedBinariesCache(true);
+        builder.setSharedBinariesCacheDir(cacheDir.toFile());
+        DBConfiguration config = builder.build();
+        assertThat(config.isUsingSharedBinariesCache()).isTrue();
+        assertThat(config.getBaseDir().getParentFile()).isEqualTo(cacheDir.toFile());
+        assertThat(config.getLibDir()).isEqualTo(new File(config.getBaseDir(), "libs"));
+
+        DBConfigurationBuilder otherBuilder = DBConfigurationBuilder.newBuilder();
+        otherBuilder.setUsingSharedBinariesCache(true);
+        otherBuilder.setSharedBinariesCacheDir(cacheDir.toFile());
+        assertThat(otherBuilder.build().getBaseDir()).isEqualTo(config.getBaseDir());
+    }
+
+    @Test
+    public void sharedBinariesCacheIsNotUsedByDefault() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        DBConfiguration config = builder.build();
+        assertThat(config.isUsingSharedBinariesCache()).isFalse();
+    }
+
+    @Test
+    public void dataDirTemplateCache() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        assertThat(builder.isUsingDataDirTemplateCache()).isFalse();
+        File templates = new File("target/templates");
+        builder.setUsingDataDirTemplateCache(true).setDataDirTemplateCacheDir(templates);
+        DBConfiguration config = builder.build();
+        assertThat(config.isUsingDataDirTemplateCache()).isTrue();
+        assertThat(config.getDataDirTemplateCacheDir()).isEqualTo(templates);
+    }
+
+    @Test
+    public void lifecycleListener() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        assertThat(builder.build().getLifecycleListener()).isNull();
+        DBLifecycleListener listener = timing -> {};
+        builder = DBConfigurationBuilder.newBuilder().setLifecycleListener(listener);
+        assertThat(builder.build().getLifecycleListener()).isSameInstanceAs(listener);
+    }
+
     @Test
     public void defaultCharacterSet() {
         DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
@@ -214,4 +272,51 @@ public class DBConfigurationBuilderTest {
         assertThat(config.getExecutable(Executable.Server))
                 .isEqualTo(new File("/usr/sbin/mariadbd"));
     }
+
+    @Test
+    public void dataOnRamDisk() throws IOException {
+        Path ramDiskDir = Files.createTempDirectory("MariaDB4jRamDisk");
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setDataOnRamDisk(true).setRamDiskDir(ramDiskDir.toFile()).setRamDiskMinFreeSpace(0);
+        DBConfiguration config = builder.build();
+        File root = ramDiskDir.resolve("MariaDB4j").toFile();
+        assertThat(config.getRamDiskDir()).isEqualTo(root);
+        assertThat(config.getDataDir().toPath().startsWith(root.toPath())).isTrue();
+        assertThat(config.getTmpDir().toPath().startsWith(root.toPath())).isTrue();
+        assertThat(config.getSocket()).startsWith(root.getPath());
+        assertThat(config.getDataDir().toString()).contains(Integer.toString(config.getPort()));
+        assertThat(Util.isTemporaryDirectory(config.getDataDir(), config)).isTrue();
+    }
+
+    @Test
+    public void dataOnRamDiskFallsBackToDiskWithoutEnoughFreeSpace() throws IOException {
+        Path ramDiskDir = Files.createTempDirectory("MariaDB4jRamDisk");
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setDataOnRamDisk(true).setRamDiskDir(ramDiskDir.toFile());
+        builder.setRamDiskMinFreeSpace(Long.MAX_VALUE);
+        DBConfiguration config = builder.build();
+        assertThat(config.getRamDiskDir()).isNull();
+        assertThat(config.getDataDir().toPath().startsWith(ramDiskDir)).isFalse();
+        assertThat(Util.isTemporaryDirectory(config.getDataDir(), config)).isTrue();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void socketOnlyHasNoPortAndASocketURL() {
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setSocketOnly(true);
+        DBConfiguration config = builder.build();
+        assertThat(config.isSocketOnly()).isTrue();
+        assertThat(config.getPort()).isEqualTo(0);
+        assertThat(config.getURL("db"))
+                .isEqualTo(
+                        "jdbc:mariadb://localhost/db?localSocket="
+                                + new File(config.getSocket()).getAbsolutePath());
+        assertThat(Util.isTemporaryDirectory(config.getDataDir())).isTrue();
+
+        DBConfiguration other = DBConfigurationBuilder.newBuilder().setSocketOnly(true).build();
+        assertThat(other.getSocket()).isNotEqualTo(config.getSocket());
+        assertThat(other.getDataDir()).isNotEqualTo(config.getDataDir());
+        assertThat(other.getTmpDir()).isNotEqualTo(config.getTmpDir());
+    }
 }
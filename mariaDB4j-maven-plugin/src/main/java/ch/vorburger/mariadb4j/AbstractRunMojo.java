@@ -23,6 +23,7 @@ package ch.vorburger.mariadb4j;
 import ch.vorburger.exec.ManagedProcessException;
 import ch.vorburger.mariadb4j.utils.DBSingleton;
 
+import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -31,6 +32,8 @@ import org.apache.maven.project.MavenProject;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -130,6 +133,19 @@ public abstract class AbstractRunMojo extends AbstractMojo {
         return configurationBuilder;
     }
 
+    /**
+     * Opens a script file, re-encoding it on the fly into the platform's default charset, because
+     * that is what the DB expects (like for the text of DB.run(String...)).
+     */
+    private static InputStream newScriptInputStream(File scriptFile, Charset charset)
+            throws IOException {
+        InputStream in = Files.newInputStream(scriptFile.toPath());
+        return ReaderInputStream.builder()
+                .setReader(new InputStreamReader(in, charset))
+                .setCharset(Charset.defaultCharset())
+                .get();
+    }
+
     private Charset getScriptCharset() {
         return Optional.ofNullable(scriptCharset)
                 .map(Charset::forName)
@@ -151,13 +167,17 @@ public abstract class AbstractRunMojo extends AbstractMojo {
             }
             Charset charset = getScriptCharset();
             for (File scriptFile : this.scripts) {
-                // awesome http://www.adam-bien.com/roller/abien/entry/java_8_reading_a_file
-                // Though we should have in db to pass a file or inputstream so we don't overload
-                // memory. So
-                // TODO: add new function to db public void source(File resource, String username,
-                // String password, String dbName)
-                String scriptText = new String(Files.readAllBytes(scriptFile.toPath()), charset);
-                db.run(scriptText, null, null, dbName);
+                // Don't read the script into memory, as it may be a huge dump. If it already is in
+                // the charset the client expects, the client sources it itself (with
+                // --abort-source-on-error, so that a failing statement fails the goal); else it is
+                // re-encoded on the fly and piped into the client's stdin.
+                if (charset.equals(Charset.defaultCharset())) {
+                    db.source(scriptFile.toPath(), null, null, dbName, false);
+                } else {
+                    try (InputStream script = newScriptInputStream(scriptFile, charset)) {
+                        db.source(script, null, null, dbName);
+                    }
+                }
             }
             getLog().info("Successfully run scripts");
         }
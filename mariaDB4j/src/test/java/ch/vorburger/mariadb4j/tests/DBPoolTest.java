@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * MariaDB4j
+ * %%
+ * Copyright (C) 2026 Michael Vorburger
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ch.vorburger.mariadb4j.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import ch.vorburger.mariadb4j.DBPool;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/** Tests the {@link DBPool}. */
+public class DBPoolTest {
+
+    @Test
+    public void acquireAndReleaseWithReset() throws Exception {
+        DBConfigurationBuilder template = newTemplate();
+        try (DBPool pool =
+                new DBPool(template, 2, db -> db.run("DROP DATABASE IF EXISTS pooled"))) {
+            DB db1 = pool.acquire();
+            DB db2 = pool.acquire();
+            assertNotEquals(db1.getConfiguration().getPort(), db2.getConfiguration().getPort());
+            assertNotEquals(
+                    db1.getConfiguration().getDataDir(), db2.getConfiguration().getDataDir());
+
+            db1.createDB("pooled");
+            pool.release(db1);
+            pool.release(db2);
+
+            DB db = pool.acquire();
+            assertEquals(0, countDatabasesNamedPooled(db));
+            pool.release(db);
+        }
+    }
+
+    @Test
+    public void releaseWithoutResetReplaces() throws Exception {
+        DBConfigurationBuilder template = newTemplate();
+        try (DBPool pool = new DBPool(template, 1)) {
+            DB db1 = pool.acquire();
+            db1.createDB("pooled");
+            assertEquals(1, countDatabasesNamedPooled(db1));
+            pool.release(db1);
+            DB db2 = pool.acquire();
+            assertNotEquals(db1, db2);
+            assertEquals(0, countDatabasesNamedPooled(db2));
+            pool.release(db2);
+        }
+    }
+
+    @Test
+    public void releaseAfterClose() throws Exception {
+        DBConfigurationBuilder template = newTemplate();
+        DBPool pool = new DBPool(template, 1);
+        DB db = pool.acquire();
+        pool.close();
+        // close() already stopped it, so this must neither fail nor stop it again
+        pool.release(db);
+        assertThrows(SQLException.class, () -> countDatabasesNamedPooled(db));
+    }
+
+    private static DBConfigurationBuilder newTemplate() {
+        return DBConfigurationBuilder.newBuilder()
+                .setUsingSharedBinariesCache(true)
+                .setUsingDataDirTemplateCache(true);
+    }
+
+    private static int countDatabasesNamedPooled(DB db) throws Exception {
+        try (Connection conn =
+                        DriverManager.getConnection(
+                                db.getConfiguration().getURL("mysql"), "root", "");
+                Statement statement = conn.createStatement();
+                ResultSet resultSet = statement.executeQuery("SHOW DATABASES LIKE 'pooled'")) {
+            int count = 0;
+            while (resultSet.next()) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -21,17 +21,41 @@ package ch.vorburger.mariadb4j.tests;
 
 import ch.vorburger.exec.ManagedProcessException;
 import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfiguration.Profile;
 import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import ch.vorburger.mariadb4j.DBLifecycleListener.Phase;
+import ch.vorburger.mariadb4j.DBLifecycleListener.PhaseTiming;
+import ch.vorburger.mariadb4j.DBSession;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /** Tests more functionality of MariaDB4j. */
 public class MariaDB4jSampleOtherTest {
 
+    @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final List<DB> dbs = new ArrayList<>();
+
     /**
      * This test ensure that there is no conflict between sockets if two MariaDB4j run on the same
      * port.
@@ -47,13 +71,43 @@ public class MariaDB4jSampleOtherTest {
     }
 
     protected DB startNewDB() throws ManagedProcessException {
+        return startNewDB(newConfig());
+    }
+
+    /**
+     * Configuration as used by {@link #startNewDB()}, to customize for {@link
+     * #startNewDB(DBConfigurationBuilder)}.
+     */
+    protected static DBConfigurationBuilder newConfig() {
         DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
         config.setPort(0);
+        return config;
+    }
+
+    /** Starts a DB, which {@link #afterTest()} stops, even if the test failed. */
+    protected DB startNewDB(DBConfigurationBuilder config) throws ManagedProcessException {
         DB db = DB.newEmbeddedDB(config.build());
+        dbs.add(db);
         db.start();
         return db;
     }
 
+    @After
+    public void afterTest() throws ManagedProcessException {
+        for (DB db : dbs) {
+            db.stop();
+        }
+    }
+
+    @Test
+    public void startupTimings() throws Exception {
+        DB db = startNewDB();
+        List<Phase> phases = db.getStartupTimings().stream().map(PhaseTiming::getPhase).toList();
+        db.stop();
+        Assert.assertTrue(phases.toString(), phases.contains(Phase.SPAWN));
+        Assert.assertTrue(phases.toString(), phases.contains(Phase.WAIT_UNTIL_READY));
+    }
+
     /**
      * Reproduces issue #30 re. Exception if there are spaces in the data directory path #30.
      *
@@ -117,4 +171,297 @@ public class MariaDB4jSampleOtherTest {
         db.source("ch/vorburger/mariadb4j/characterTest.sql");
         db.stop();
     }
+
+    @Test
+    public void sourceFile() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        DB db = startNewDB(config);
+        db.createDB("sourcefile");
+        // Note that this file name intentionally contains a space
+        Path dir = tempFolder.newFolder("MariaDB4j source").toPath();
+        Path script = dir.resolve("source file.sql");
+        Files.writeString(
+                script,
+                """
+                CREATE TABLE t (i INT PRIMARY KEY);
+                INSERT INTO t VALUES (1);
+                INSERT INTO t VALUES (1);
+                INSERT INTO t VALUES (2);
+                """);
+        Assert.assertThrows(
+                ManagedProcessException.class,
+                () -> db.source(script, null, null, "sourcefile", false));
+        Assert.assertEquals(1, count(config, "sourcefile"));
+
+        db.run("DROP TABLE t", null, null, "sourcefile");
+        db.source(script, null, null, "sourcefile", true);
+        Assert.assertEquals(2, count(config, "sourcefile"));
+    }
+
+    @Test
+    public void skippingUnchangedScripts() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        config.setSkippingUnchangedScripts(true);
+        DB db = startNewDB(config);
+        Path dir = tempFolder.getRoot().toPath();
+        Path script = dir.resolve("script.sql");
+        Files.writeString(script, "CREATE TABLE t (i INT PRIMARY KEY); INSERT INTO t VALUES (1);");
+        db.createDB("skipping");
+        db.source(script, null, null, "skipping", false);
+        // Would fail, if it was not skipped
+        db.source(script, null, null, "skipping", false);
+        Assert.assertEquals(1, count(config, "skipping"));
+
+        // Dropping the database forgets the script, so it runs again
+        db.dropDBs(List.of("skipping"));
+        db.createDB("skipping");
+        db.source(script, null, null, "skipping", false);
+        Assert.assertEquals(1, count(config, "skipping"));
+
+        // Forced scripts, in which statements may have failed, are not recorded
+        Path forced = dir.resolve("forced.sql");
+        Files.writeString(forced, "INSERT INTO t VALUES (1); INSERT INTO t VALUES (2);");
+        db.source(forced, null, null, "skipping", true);
+        db.run("DELETE FROM t WHERE i = 2", null, null, "skipping");
+        db.source(forced, null, null, "skipping", true);
+        Assert.assertEquals(2, count(config, "skipping"));
+    }
+
+    @Test
+    public void sourceAll() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        DB db = startNewDB(config);
+        Path dir = tempFolder.getRoot().toPath();
+        Path create = dir.resolve("create.sql");
+        Files.writeString(create, "CREATE TABLE t (i INT PRIMARY KEY);");
+        Path insert = dir.resolve("insert.sql");
+        Files.writeString(insert, "INSERT INTO t VALUES (1); INSERT INTO t VALUES (2);");
+        Map<String, List<Path>> scripts = new LinkedHashMap<>();
+        for (int i = 1; i <= 3; i++) {
+            db.createDB("sourceall" + i);
+            scripts.put("sourceall" + i, List.of(create, insert));
+        }
+        db.sourceAll(scripts, 3);
+        for (String dbName : scripts.keySet()) {
+            Assert.assertEquals(2, count(config, dbName));
+        }
+    }
+
+    @Test
+    public void bulkLoad() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        DB db = startNewDB(config);
+        db.createDB("bulkload");
+        db.run("CREATE TABLE t (i INT PRIMARY KEY, s VARCHAR(20))", null, null, "bulkload");
+        db.bulkLoad(
+                "bulkload",
+                "t",
+                IntStream.rangeClosed(1, 10_000).mapToObj(i -> new Object[] {i, "a\tb"}));
+        Assert.assertEquals(10_000, count(config, "bulkload"));
+
+        Path csv = tempFolder.newFile("bulkload.csv").toPath();
+        Files.writeString(csv, "-1,\"a,\"\"b\"\"\"\n-2,NULL\n");
+        db.bulkLoad("bulkload", "t", csv);
+        Assert.assertEquals(10_002, count(config, "bulkload"));
+
+        // Duplicate keys fail the whole load
+        Assert.assertThrows(
+                ManagedProcessException.class,
+                () ->
+                        db.bulkLoad(
+                                "bulkload",
+                                "t",
+                                Stream.of(new Object[] {-3, null}, new Object[] {1, null})));
+        Assert.assertEquals(10_002, count(config, "bulkload"));
+
+        // So does a stream which fails halfway, or has a value of an unsupported type
+        Assert.assertThrows(
+                IllegalStateException.class,
+                () ->
+                        db.bulkLoad(
+                                "bulkload",
+                                "t",
+                                IntStream.rangeClosed(20_001, 30_000)
+                                        .mapToObj(
+                                                i -> {
+                                                    if (i == 25_000) {
+                                                        throw new IllegalStateException("halfway");
+                                                    }
+                                                    return new Object[] {i, null};
+                                                })));
+        Assert.assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        db.bulkLoad(
+                                "bulkload",
+                                "t",
+                                Stream.of(
+                                        new Object[] {-3, null}, new Object[] {-4, new byte[0]})));
+        Assert.assertEquals(10_002, count(config, "bulkload"));
+    }
+
+    @Test
+    public void session() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        DB db = startNewDB(config);
+        db.createDB("session");
+        try (DBSession session = db.openSession(null, null, "session")) {
+            session.run("CREATE TABLE t (i INT PRIMARY KEY)");
+            for (int i = 1; i <= 10; i++) {
+                session.run("INSERT INTO t VALUES (" + i + ")");
+            }
+            Assert.assertThrows(
+                    ManagedProcessException.class,
+                    () -> session.run("INSERT INTO t VALUES (11); INSERT INTO t VALUES (1)"));
+            // The failed command stopped at its error, and the session lost its state with it
+            Assert.assertThrows(
+                    IllegalStateException.class, () -> session.run("INSERT INTO t VALUES (12)"));
+        }
+        try (DBSession session = db.openSession(null, null, "session")) {
+            session.run("DELIMITER //\nINSERT INTO t VALUES (12)//");
+            session.run("INSERT INTO t VALUES (13);");
+        }
+        Assert.assertEquals(13, count(config, "session"));
+    }
+
+    @Test
+    public void query() throws Exception {
+        for (boolean isRunningScriptsViaJdbc : new boolean[] {false, true}) {
+            DBConfigurationBuilder config = newConfig();
+            config.setRunningScriptsViaJdbc(isRunningScriptsViaJdbc);
+            DB db = startNewDB(config);
+            db.createDB("query");
+            db.run(
+                    "CREATE TABLE t (i INT, s TEXT); INSERT INTO t VALUES"
+                            + " (1, 'a\\tb\\\\c\\nd\\re'), (2, NULL), (3, ''), (4, 'NULL');",
+                    null,
+                    null,
+                    "query");
+            try (Stream<String[]> rows = db.query("SELECT i, s FROM t ORDER BY i", "query")) {
+                List<String[]> list = rows.toList();
+                Assert.assertEquals(4, list.size());
+                Assert.assertArrayEquals(new String[] {"1", "a\tb\\c\nd\re"}, list.get(0));
+                Assert.assertArrayEquals(new String[] {"2", null}, list.get(1));
+                Assert.assertArrayEquals(new String[] {"3", ""}, list.get(2));
+                Assert.assertArrayEquals(new String[] {"4", "NULL"}, list.get(3));
+            }
+            // Only the first result is returned, even if the next one is larger than a pipe
+            try (Stream<String[]> rows =
+                    db.query("SELECT COUNT(*) FROM t; SELECT REPEAT('x', 1000000)", "query")) {
+                Assert.assertArrayEquals(new String[] {"4"}, rows.findFirst().get());
+            }
+            try (Stream<String[]> rows = db.query("DELETE FROM t", "query")) {
+                Assert.assertEquals(0, rows.count());
+            }
+            Assert.assertThrows(
+                    ManagedProcessException.class, () -> db.query("SELECT * FROM nope", "query"));
+            db.stop();
+        }
+    }
+
+    @Test
+    public void runViaJdbcDoesNotLeakSessionState() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        config.setRunningScriptsViaJdbc(true);
+        DB db = startNewDB(config);
+        db.createDB("session");
+        db.run("CREATE TABLE t (i INT); INSERT INTO t VALUES (0);", null, null, "session");
+        // The temporary table would shadow t, if this session was reused for the next script
+        db.run(
+                "SET @v = 42; CREATE TEMPORARY TABLE t (i INT); INSERT INTO t VALUES (1);",
+                null,
+                null,
+                "session");
+        db.run("CREATE TABLE r AS SELECT @v AS v, i FROM t;", null, null, "session");
+        try (Stream<String[]> rows = db.query("SELECT v, i FROM r", "session")) {
+            Assert.assertArrayEquals(new String[] {null, "0"}, rows.findFirst().get());
+        }
+    }
+
+    @Test
+    public void createAndDropDBs() throws Exception {
+        DBConfigurationBuilder config = newConfig();
+        DB db = startNewDB(config);
+        List<String> dbNames = IntStream.range(0, 100).mapToObj(i -> "many" + i).toList();
+        db.createDBs(dbNames, "utf8mb4", "utf8mb4_bin");
+        String sql =
+                "SELECT COUNT(*), MIN(DEFAULT_COLLATION_NAME), MAX(DEFAULT_COLLATION_NAME)"
+                        + " FROM information_schema.SCHEMATA WHERE SCHEMA_NAME LIKE 'many%'";
+        try (Stream<String[]> rows = db.query(sql, null)) {
+            Assert.assertArrayEquals(
+                    new String[] {"100", "utf8mb4_bin", "utf8mb4_bin"}, rows.findFirst().get());
+        }
+        db.dropDBs(dbNames);
+        try (Stream<String[]> rows = db.query(sql, null)) {
+            Assert.assertEquals("0", rows.findFirst().get()[0]);
+        }
+    }
+
+    @Test
+    public void performanceProfiles() throws Exception {
+        String sql =
+                "SELECT @@innodb_flush_log_at_trx_commit, @@innodb_doublewrite,"
+                        + " @@innodb_buffer_pool_size, @@innodb_log_file_size";
+        DBConfigurationBuilder config = newConfig();
+        config.setPerformanceProfile(Profile.FAST_EPHEMERAL);
+        config.addArg("--innodb_flush_log_at_trx_commit=2");
+        DB db = startNewDB(config);
+        try (Stream<String[]> rows = db.query(sql, null)) {
+            String[] row = rows.findFirst().get();
+            // addArg() overrides the profile
+            Assert.assertEquals("2", row[0]);
+            Assert.assertTrue(row[1], row[1].equals("0") || row[1].equals("OFF"));
+            Assert.assertEquals(String.valueOf(256 * 1024 * 1024), row[3]);
+        }
+        db.stop();
+
+        config = newConfig();
+        config.setPerformanceProfile(Profile.LOW_MEMORY);
+        db = startNewDB(config);
+        try (Stream<String[]> rows = db.query(sql, null)) {
+            String[] row = rows.findFirst().get();
+            Assert.assertEquals(String.valueOf(16 * 1024 * 1024), row[2]);
+            Assert.assertEquals(String.valueOf(16 * 1024 * 1024), row[3]);
+        }
+        db.stop();
+
+        config = newConfig();
+        config.setPerformanceProfile(Profile.LOW_MEMORY);
+        config.setMemoryBudget(64 * 1024 * 1024);
+        db = startNewDB(config);
+        try (Stream<String[]> rows = db.query(sql, null)) {
+            // The memory budget overrides the profile
+            Assert.assertEquals(String.valueOf(32 * 1024 * 1024), rows.findFirst().get()[2]);
+        }
+    }
+
+    @Test
+    public void socketOnly() throws Exception {
+        if (SystemUtils.IS_OS_WINDOWS) {
+            return;
+        }
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setSocketOnly(true);
+        DB db = startNewDB(config);
+        Assert.assertEquals(0, db.getConfiguration().getPort());
+        db.run("CREATE TABLE t (i INT); INSERT INTO t VALUES (1), (2);", null, null, "test");
+        try (Stream<String[]> rows =
+                db.query("SHOW GLOBAL VARIABLES LIKE 'skip_networking'", null)) {
+            Assert.assertEquals("ON", rows.findFirst().get()[1]);
+        }
+        try (Stream<String[]> rows = db.query("SELECT @@port, COUNT(*) FROM t", "test")) {
+            String[] row = rows.findFirst().get();
+            Assert.assertEquals("0", row[0]);
+            Assert.assertEquals("2", row[1]);
+        }
+    }
+
+    private static int count(DBConfigurationBuilder config, String dbName) throws Exception {
+        try (Connection conn = DriverManager.getConnection(config.getURL(dbName), "root", "");
+                Statement statement = conn.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM t")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
 }